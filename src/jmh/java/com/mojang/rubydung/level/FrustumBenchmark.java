@@ -0,0 +1,102 @@
+package com.mojang.rubydung.level;
+
+import com.mojang.rubydung.Player;
+import com.mojang.rubydung.phys.AABB;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FrustumBenchmark {
+   private File dir;
+   private static final int BOXES = 1024;
+   private Player player;
+   private Frustum frustum;
+   private AABB[] boxes = new AABB[BOXES];
+
+   @Setup
+   public void setUp() throws IOException {
+      this.dir = TempDirs.create();
+      this.player = new Player(new Level(16, 16, 16, 0, new File(this.dir, "level.dat")));
+      this.player.x = this.player.xo = 128.0F;
+      this.player.y = this.player.yo = 48.0F;
+      this.player.z = this.player.zo = 128.0F;
+      this.player.xRot = 20.0F;
+      this.player.yRot = 135.0F;
+      this.frustum = Frustum.getFrustum(this.player, 1.0F, 70.0F, 1.5F, 0.05F, 1000.0F);
+      Random random = new Random(23L);
+
+      for(int i = 0; i < BOXES; ++i) {
+         float x = (float)(random.nextInt(16) * 16);
+         float y = (float)(random.nextInt(4) * 16);
+         float z = (float)(random.nextInt(16) * 16);
+         this.boxes[i] = new AABB(x, y, z, x + 16.0F, y + 16.0F, z + 16.0F);
+      }
+
+   }
+
+   @TearDown
+   public void tearDown() {
+      TempDirs.delete(this.dir);
+   }
+
+   @Benchmark
+   public Frustum extractFromPlayer() {
+      this.player.yRot += 0.1F;
+      return Frustum.getFrustum(this.player, 1.0F, 70.0F, 1.5F, 0.05F, 1000.0F);
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BOXES)
+   public int cubeInFrustum() {
+      int visible = 0;
+
+      for(int i = 0; i < BOXES; ++i) {
+         if (this.frustum.cubeInFrustum(this.boxes[i])) {
+            ++visible;
+         }
+      }
+
+      return visible;
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BOXES)
+   public int cubeInFrustumAllCorners() {
+      float[] p = this.frustum.planes;
+      int visible = 0;
+
+      for(int b = 0; b < BOXES; ++b) {
+         AABB box = this.boxes[b];
+         boolean inside = true;
+
+         for(int i = 0; i < 24 && inside; i += 4) {
+            inside = p[i] * box.x0 + p[i + 1] * box.y0 + p[i + 2] * box.z0 + p[i + 3] > 0.0F || p[i] * box.x1 + p[i + 1] * box.y0 + p[i + 2] * box.z0 + p[i + 3] > 0.0F || p[i] * box.x0 + p[i + 1] * box.y1 + p[i + 2] * box.z0 + p[i + 3] > 0.0F || p[i] * box.x1 + p[i + 1] * box.y1 + p[i + 2] * box.z0 + p[i + 3] > 0.0F || p[i] * box.x0 + p[i + 1] * box.y0 + p[i + 2] * box.z1 + p[i + 3] > 0.0F || p[i] * box.x1 + p[i + 1] * box.y0 + p[i + 2] * box.z1 + p[i + 3] > 0.0F || p[i] * box.x0 + p[i + 1] * box.y1 + p[i + 2] * box.z1 + p[i + 3] > 0.0F || p[i] * box.x1 + p[i + 1] * box.y1 + p[i + 2] * box.z1 + p[i + 3] > 0.0F;
+         }
+
+         if (inside) {
+            ++visible;
+         }
+      }
+
+      return visible;
+   }
+}
@@ -0,0 +1,138 @@
+package com.mojang.rubydung.level;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IsTileBenchmark {
+   private File dir;
+   private static final int WIDTH = 256;
+   private static final int HEIGHT = 256;
+   private static final int DEPTH = 64;
+   private static final int LOOKUPS = 4096;
+   private Level level;
+   private byte[] flat;
+   private int[] xs = new int[LOOKUPS];
+   private int[] ys = new int[LOOKUPS];
+   private int[] zs = new int[LOOKUPS];
+
+   @Setup
+   public void setUp() throws IOException {
+      this.dir = TempDirs.create();
+      this.level = new Level(WIDTH, HEIGHT, DEPTH, 0, new File(this.dir, "level.dat"));
+      Random random = new Random(7L);
+
+      for(int i = 0; i < 30000; ++i) {
+         this.level.setTile(random.nextInt(WIDTH), random.nextInt(DEPTH), random.nextInt(HEIGHT), random.nextInt(2));
+      }
+
+      this.flat = new byte[WIDTH * HEIGHT * DEPTH];
+
+      for(int y = 0; y < DEPTH; ++y) {
+         for(int z = 0; z < HEIGHT; ++z) {
+            for(int x = 0; x < WIDTH; ++x) {
+               this.flat[(y * HEIGHT + z) * WIDTH + x] = (byte)(this.level.isTile(x, y, z) ? 1 : 0);
+            }
+         }
+      }
+
+      for(int i = 0; i < LOOKUPS; ++i) {
+         this.xs[i] = random.nextInt(WIDTH);
+         this.ys[i] = random.nextInt(DEPTH);
+         this.zs[i] = random.nextInt(HEIGHT);
+      }
+
+   }
+
+   @TearDown
+   public void tearDown() {
+      TempDirs.delete(this.dir);
+   }
+
+   private boolean isFlatTile(int x, int y, int z) {
+      return x >= 0 && y >= 0 && z >= 0 && x < WIDTH && y < DEPTH && z < HEIGHT && this.flat[(y * HEIGHT + z) * WIDTH + x] == 1;
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(LOOKUPS)
+   public int randomIsTile() {
+      int count = 0;
+
+      for(int i = 0; i < LOOKUPS; ++i) {
+         if (this.level.isTile(this.xs[i], this.ys[i], this.zs[i])) {
+            ++count;
+         }
+      }
+
+      return count;
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(LOOKUPS)
+   public int randomFlat() {
+      int count = 0;
+
+      for(int i = 0; i < LOOKUPS; ++i) {
+         if (this.isFlatTile(this.xs[i], this.ys[i], this.zs[i])) {
+            ++count;
+         }
+      }
+
+      return count;
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(WIDTH * HEIGHT * DEPTH)
+   public int scanIsTile() {
+      int count = 0;
+
+      for(int y = 0; y < DEPTH; ++y) {
+         for(int z = 0; z < HEIGHT; ++z) {
+            for(int x = 0; x < WIDTH; ++x) {
+               if (this.level.isTile(x, y, z)) {
+                  ++count;
+               }
+            }
+         }
+      }
+
+      return count;
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(WIDTH * HEIGHT * DEPTH)
+   public int scanFlat() {
+      int count = 0;
+
+      for(int y = 0; y < DEPTH; ++y) {
+         for(int z = 0; z < HEIGHT; ++z) {
+            for(int x = 0; x < WIDTH; ++x) {
+               if (this.isFlatTile(x, y, z)) {
+                  ++count;
+               }
+            }
+         }
+      }
+
+      return count;
+   }
+}
@@ -0,0 +1,80 @@
+package com.mojang.rubydung.level;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RelightBenchmark {
+   private File dir;
+   private Level level;
+   private int[] xs = new int[1024];
+   private int[] zs = new int[1024];
+   private int surface;
+   private int next = 0;
+
+   @Setup
+   public void setUp() throws IOException {
+      this.dir = TempDirs.create();
+      this.level = new Level(256, 256, 64, 0, new File(this.dir, "level.dat"));
+      this.level.setPropagatedLight(true);
+      this.surface = this.level.depth * 2 / 3 + 1;
+      Random random = new Random(11L);
+
+      for(int i = 0; i < this.xs.length; ++i) {
+         this.xs[i] = 16 + random.nextInt(224);
+         this.zs[i] = 16 + random.nextInt(224);
+      }
+
+      for(int i = 0; i < 64; ++i) {
+         int x = this.xs[i];
+         int z = this.zs[i];
+         this.level.setTile(x, this.surface + 3, z, 1);
+         this.level.setTile(x + 1, this.surface + 3, z, 1);
+         this.level.setTile(x, this.surface + 3, z + 1, 1);
+      }
+
+   }
+
+   @TearDown
+   public void tearDown() {
+      TempDirs.delete(this.dir);
+   }
+
+   @Benchmark
+   public int placeAndRemove() {
+      int i = this.next++ & this.xs.length - 1;
+      int x = this.xs[i];
+      int z = this.zs[i];
+      this.level.setTile(x, this.surface, z, 1);
+      this.level.setTile(x, this.surface, z, 0);
+      return this.level.getLightDepth(x, z);
+   }
+
+   @Benchmark
+   public int removeAndPlaceUnderground() {
+      int i = this.next++ & this.xs.length - 1;
+      int x = this.xs[i];
+      int z = this.zs[i];
+      this.level.setTile(x, this.surface - 1, z, 0);
+      this.level.setTile(x, this.surface - 1, z, 1);
+      return this.level.getLightDepth(x, z);
+   }
+}
@@ -0,0 +1,113 @@
+package com.mojang.rubydung.level;
+
+import com.mojang.rubydung.phys.AABB;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SectionAccessBenchmark {
+   private File dir;
+   private Level level;
+   private Chunk[] chunks;
+   private AABB[] boxes;
+   private ChunkTesselator[] layers = new ChunkTesselator[]{new ChunkTesselator(), new ChunkTesselator()};
+   private GreedyMesher mesher = new GreedyMesher();
+   private VisibilityGraph visibilityGraph = new VisibilityGraph();
+   private int next = 0;
+
+   @Setup
+   public void setUp() throws IOException {
+      this.dir = TempDirs.create();
+      this.level = new Level(256, 256, 64, 0, new File(this.dir, "level.dat"));
+      Random random = new Random(8L);
+
+      for(int i = 0; i < 30000; ++i) {
+         this.level.setTile(random.nextInt(256), random.nextInt(64), random.nextInt(256), random.nextInt(2));
+      }
+
+      ArrayList<Chunk> chunks = new ArrayList<>();
+
+      for(int x = 0; x < 16; ++x) {
+         for(int y = 0; y < 4; ++y) {
+            for(int z = 0; z < 16; ++z) {
+               chunks.add(new Chunk(this.level, x * 16, y * 16, z * 16, x * 16 + 16, y * 16 + 16, z * 16 + 16));
+            }
+         }
+      }
+
+      this.chunks = (Chunk[])chunks.toArray(new Chunk[0]);
+      this.boxes = new AABB[1024];
+
+      for(int i = 0; i < this.boxes.length; ++i) {
+         float x = random.nextFloat() * 250.0F;
+         float y = random.nextFloat() * 60.0F;
+         float z = random.nextFloat() * 250.0F;
+         this.boxes[i] = new AABB(x - 1.3F, y - 1.8F, z - 1.3F, x + 1.3F, y + 1.8F, z + 1.3F);
+      }
+
+   }
+
+   @TearDown
+   public void tearDown() {
+      TempDirs.delete(this.dir);
+   }
+
+   @Benchmark
+   public void rebuildChunk(Blackhole blackhole) {
+      Chunk chunk = this.chunks[this.next++ & this.chunks.length - 1];
+      ChunkCache cache = chunk.createCache();
+      blackhole.consume(chunk.buildMeshes(cache, this.layers, this.mesher));
+      blackhole.consume(this.visibilityGraph.compute(cache, chunk.x0, chunk.y0, chunk.z0, chunk.x1, chunk.y1, chunk.z1));
+   }
+
+   @Benchmark
+   public void rebuildChunkPerTileChecks(Blackhole blackhole) {
+      Chunk chunk = this.chunks[this.next++ & this.chunks.length - 1];
+      ChunkCache cache = chunk.createCache();
+      this.layers[0].init();
+      this.layers[1].init();
+
+      for(int x = chunk.x0; x < chunk.x1; ++x) {
+         for(int y = chunk.y0; y < chunk.y1; ++y) {
+            for(int z = chunk.z0; z < chunk.z1; ++z) {
+               if (cache.isSolidTile(x, y, z)) {
+                  if (y == this.level.depth * 2 / 3) {
+                     Tile.rock.render(this.layers, cache, x, y, z);
+                  } else {
+                     Tile.grass.render(this.layers, cache, x, y, z);
+                  }
+               }
+            }
+         }
+      }
+
+      blackhole.consume(this.layers[0].end());
+      blackhole.consume(this.layers[1].end());
+      blackhole.consume(this.visibilityGraph.compute(cache, chunk.x0, chunk.y0, chunk.z0, chunk.x1, chunk.y1, chunk.z1));
+   }
+
+   @Benchmark
+   public void getCubes(Blackhole blackhole) {
+      blackhole.consume(this.level.getCubes(this.boxes[this.next++ & this.boxes.length - 1]));
+   }
+}
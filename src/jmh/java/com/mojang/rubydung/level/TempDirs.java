@@ -0,0 +1,22 @@
+package com.mojang.rubydung.level;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+public class TempDirs {
+   public static File create() throws IOException {
+      return Files.createTempDirectory("rubydung").toFile();
+   }
+
+   public static void delete(File file) {
+      File[] children = file.listFiles();
+      if (children != null) {
+         for(int i = 0; i < children.length; ++i) {
+            delete(children[i]);
+         }
+      }
+
+      file.delete();
+   }
+}
@@ -1,6 +1,7 @@
 package com.mojang.rubydung;
 
 import com.mojang.rubydung.level.Chunk;
+import com.mojang.rubydung.level.Frustum;
 import com.mojang.rubydung.level.Level;
 import com.mojang.rubydung.level.LevelRenderer;
 import java.awt.Component;
@@ -35,6 +36,8 @@ public class RubyDung implements Runnable {
    private IntBuffer viewportBuffer = BufferUtils.createIntBuffer(16);
    private IntBuffer selectBuffer = BufferUtils.createIntBuffer(2000);
    private HitResult hitResult = null;
+   private HitResult pickResult = new HitResult(0, 0, 0, 0, 0);
+   private boolean raycastPicking = true;
 
    public void init() throws LWJGLException, IOException {
       int col = 920330;
@@ -111,6 +114,7 @@ public class RubyDung implements Runnable {
    }
 
    public void tick() {
+      this.level.updateStreaming((int)this.player.x, (int)this.player.z);
       this.player.tick();
    }
 
@@ -148,6 +152,19 @@ public class RubyDung implements Runnable {
    }
 
    private void pick(float a) {
+      if (this.raycastPicking) {
+         float xRot = (float)Math.toRadians((double)this.player.xRot);
+         float yRot = (float)Math.toRadians((double)this.player.yRot);
+         float xd = (float)(Math.sin((double)yRot) * Math.cos((double)xRot));
+         float yd = (float)(-Math.sin((double)xRot));
+         float zd = (float)(-Math.cos((double)yRot) * Math.cos((double)xRot));
+         float x = this.player.xo + (this.player.x - this.player.xo) * a - xd * 0.3F;
+         float y = this.player.yo + (this.player.y - this.player.yo) * a - yd * 0.3F;
+         float z = this.player.zo + (this.player.z - this.player.zo) * a - zd * 0.3F;
+         this.hitResult = this.level.clip(x, y, z, xd, yd, zd, this.player.bb, 3.0F, this.pickResult) ? this.pickResult : null;
+         return;
+      }
+
       this.selectBuffer.clear();
       GL11.glSelectBuffer(this.selectBuffer);
       GL11.glRenderMode(7170);
@@ -234,7 +251,24 @@ public class RubyDung implements Runnable {
 
       while(Keyboard.next()) {
          if (Keyboard.getEventKey() == 28 && Keyboard.getEventKeyState()) {
-            this.level.save();
+            this.level.saveAsync();
+         }
+
+         if (Keyboard.getEventKey() == 38 && Keyboard.getEventKeyState()) {
+            this.level.setPropagatedLight(!this.level.isPropagatedLight());
+         }
+
+         if (Keyboard.getEventKey() == 34 && Keyboard.getEventKeyState()) {
+            Chunk.greedyMeshing = !Chunk.greedyMeshing;
+            this.levelRenderer.allChanged();
+         }
+
+         if (Keyboard.getEventKey() == 24 && Keyboard.getEventKeyState()) {
+            this.levelRenderer.occlusionCulling = !this.levelRenderer.occlusionCulling;
+         }
+
+         if (Keyboard.getEventKey() == 25 && Keyboard.getEventKeyState()) {
+            this.raycastPicking = !this.raycastPicking;
          }
       }
 
@@ -246,9 +280,10 @@ public class RubyDung implements Runnable {
       GL11.glFogf(2914, 0.2F);
       GL11.glFog(2918, this.fogColor);
       GL11.glDisable(2912);
-      this.levelRenderer.render(this.player, 0);
+      Frustum frustum = Frustum.getFrustum(this.player, a, 70.0F, (float)this.width / (float)this.height, 0.05F, 1000.0F);
+      this.levelRenderer.render(this.player, frustum, 0);
       GL11.glEnable(2912);
-      this.levelRenderer.render(this.player, 1);
+      this.levelRenderer.render(this.player, frustum, 1);
       GL11.glDisable(3553);
       if (this.hitResult != null) {
          this.levelRenderer.renderHit(this.hitResult);
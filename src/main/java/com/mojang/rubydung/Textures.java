@@ -49,6 +49,45 @@ public class Textures {
       }
    }
 
+   public static int loadTileTexture(String resourceName, int tile, int mode) {
+      String key = resourceName + "#" + tile;
+
+      try {
+         if (idMap.containsKey(key)) {
+            return (Integer)idMap.get(key);
+         } else {
+            IntBuffer ib = BufferUtils.createIntBuffer(1);
+            GL11.glGenTextures(ib);
+            int id = ib.get(0);
+            bind(id);
+            GL11.glTexParameteri(3553, 10241, mode);
+            GL11.glTexParameteri(3553, 10240, mode);
+            GL11.glTexParameteri(3553, 10242, 10497);
+            GL11.glTexParameteri(3553, 10243, 10497);
+            BufferedImage img = ImageIO.read(Textures.class.getResourceAsStream(resourceName));
+            int s = img.getWidth() / 16;
+            ByteBuffer pixels = BufferUtils.createByteBuffer(s * s * 4);
+            int[] rawPixels = new int[s * s];
+            img.getRGB(tile % 16 * s, tile / 16 * s, s, s, rawPixels, 0, s);
+
+            for(int i = 0; i < rawPixels.length; ++i) {
+               int a = rawPixels[i] >> 24 & 255;
+               int r = rawPixels[i] >> 16 & 255;
+               int g = rawPixels[i] >> 8 & 255;
+               int b = rawPixels[i] & 255;
+               rawPixels[i] = a << 24 | b << 16 | g << 8 | r;
+            }
+
+            pixels.asIntBuffer().put(rawPixels);
+            GLU.gluBuild2DMipmaps(3553, 6408, s, s, 6408, 5121, pixels);
+            idMap.put(key, id);
+            return id;
+         }
+      } catch (IOException e) {
+         throw new RuntimeException("!!");
+      }
+   }
+
    public static void bind(int id) {
       if (id != lastId) {
          GL11.glBindTexture(3553, id);
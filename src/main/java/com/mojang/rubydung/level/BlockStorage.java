@@ -0,0 +1,195 @@
+package com.mojang.rubydung.level;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+public class BlockStorage {
+   private static final int WRITABLE = 0;
+   private static final int FROZEN = 1;
+   private static final int WRITING = 2;
+   public final int width;
+   public final int height;
+   public final int depth;
+   public final int xSections;
+   public final int ySections;
+   public final int zSections;
+   private Section[] sections;
+   private AtomicIntegerArray states;
+   private AtomicIntegerArray versions;
+   private BitSet batchSections;
+
+   public BlockStorage(int w, int h, int d) {
+      long sectionCount = (long)((w + 15) >> 4) * (long)((d + 15) >> 4) * (long)((h + 15) >> 4);
+      if (w <= 0 || h <= 0 || d <= 0 || sectionCount > 2147483639L) {
+         throw new IllegalArgumentException("Unsupported level size " + w + "x" + h + "x" + d);
+      }
+
+      this.width = w;
+      this.height = h;
+      this.depth = d;
+      this.xSections = (w + 15) >> 4;
+      this.ySections = (d + 15) >> 4;
+      this.zSections = (h + 15) >> 4;
+      this.sections = new Section[(int)sectionCount];
+      this.states = new AtomicIntegerArray(this.sections.length);
+      this.versions = new AtomicIntegerArray(this.sections.length);
+   }
+
+   public int getSectionIndex(int xs, int ys, int zs) {
+      return (ys * this.zSections + zs) * this.xSections + xs;
+   }
+
+   public int getSectionCount() {
+      return this.sections.length;
+   }
+
+   public Section getSection(int i) {
+      return this.sections[i];
+   }
+
+   public int getVersion(int i) {
+      return this.sections[i] == null ? -1 : this.versions.get(i);
+   }
+
+   public void setSection(int i, Section section) {
+      this.states.set(i, WRITING);
+      this.sections[i] = section;
+      if (this.batchSections != null) {
+         this.batchSections.set(i);
+      } else {
+         this.versions.incrementAndGet(i);
+         this.states.set(i, WRITABLE);
+      }
+   }
+
+   public void beginBatch() {
+      this.batchSections = new BitSet();
+   }
+
+   public void endBatch() {
+      BitSet batch = this.batchSections;
+      this.batchSections = null;
+
+      for(int i = batch.nextSetBit(0); i >= 0; i = batch.nextSetBit(i + 1)) {
+         this.versions.incrementAndGet(i);
+         this.states.set(i, WRITABLE);
+      }
+
+   }
+
+   public Section share(int i) {
+      while(true) {
+         Section section = this.sections[i];
+         int state = this.states.get(i);
+         if (state == WRITING) {
+            Thread.yield();
+         } else if ((state == FROZEN || this.states.compareAndSet(i, WRITABLE, FROZEN)) && this.sections[i] == section && this.states.get(i) == FROZEN) {
+            return section;
+         }
+      }
+   }
+
+   private Section beginWrite(int i) {
+      if (this.batchSections != null && this.batchSections.get(i)) {
+         return this.sections[i];
+      } else if (!this.states.compareAndSet(i, WRITABLE, WRITING)) {
+         this.states.set(i, WRITING);
+         this.sections[i] = this.sections[i].copy();
+      }
+
+      return this.sections[i];
+   }
+
+   private void endWrite(int i) {
+      if (this.batchSections != null) {
+         this.batchSections.set(i);
+      } else {
+         this.versions.incrementAndGet(i);
+         this.states.set(i, WRITABLE);
+      }
+   }
+
+   public byte get(int x, int y, int z) {
+      Section section = this.sections[((y >> 4) * this.zSections + (z >> 4)) * this.xSections + (x >> 4)];
+      return section == null ? 0 : section.get((y & 15) << 8 | (z & 15) << 4 | x & 15);
+   }
+
+   public void set(int x, int y, int z, byte value) {
+      int i = ((y >> 4) * this.zSections + (z >> 4)) * this.xSections + (x >> 4);
+      int local = (y & 15) << 8 | (z & 15) << 4 | x & 15;
+      if (this.sections[i] != null && this.sections[i].get(local) != value) {
+         this.beginWrite(i).set(local, value);
+         this.endWrite(i);
+      }
+
+   }
+
+   public void fill(int x0, int y0, int z0, int x1, int y1, int z1, byte value) {
+      for(int ys = y0 >> 4; ys <= y1 - 1 >> 4; ++ys) {
+         for(int zs = z0 >> 4; zs <= z1 - 1 >> 4; ++zs) {
+            for(int xs = x0 >> 4; xs <= x1 - 1 >> 4; ++xs) {
+               int i = this.getSectionIndex(xs, ys, zs);
+               if (this.sections[i] == null) {
+                  continue;
+               }
+
+               int sx0 = Math.max(x0, xs << 4);
+               int sy0 = Math.max(y0, ys << 4);
+               int sz0 = Math.max(z0, zs << 4);
+               int sx1 = Math.min(x1, xs + 1 << 4);
+               int sy1 = Math.min(y1, ys + 1 << 4);
+               int sz1 = Math.min(z1, zs + 1 << 4);
+               if (sx0 == xs << 4 && sy0 == ys << 4 && sz0 == zs << 4 && sx1 == Math.min(this.width, xs + 1 << 4) && sy1 == Math.min(this.depth, ys + 1 << 4) && sz1 == Math.min(this.height, zs + 1 << 4)) {
+                  this.setSection(i, new Section(value));
+               } else {
+                  Section section = this.beginWrite(i);
+
+                  for(int y = sy0; y < sy1; ++y) {
+                     for(int z = sz0; z < sz1; ++z) {
+                        for(int x = sx0; x < sx1; ++x) {
+                           section.set((y & 15) << 8 | (z & 15) << 4 | x & 15, value);
+                        }
+                     }
+                  }
+
+                  this.endWrite(i);
+               }
+            }
+         }
+      }
+
+   }
+
+   public void read(DataInputStream dis) throws IOException {
+      if (16L * (long)this.height * (long)this.width > 2147483639L) {
+         throw new IOException("Level too large for the single-stream format");
+      }
+
+      byte[] slab = new byte[16 * this.height * this.width];
+      byte[] values = new byte[4096];
+
+      for(int ys = 0; ys < this.ySections; ++ys) {
+         int layers = Math.min(16, this.depth - (ys << 4));
+         dis.readFully(slab, 0, layers * this.height * this.width);
+
+         for(int zs = 0; zs < this.zSections; ++zs) {
+            for(int xs = 0; xs < this.xSections; ++xs) {
+               for(int y = 0; y < 16; ++y) {
+                  for(int z = 0; z < 16; ++z) {
+                     for(int x = 0; x < 16; ++x) {
+                        int xx = (xs << 4) + x;
+                        int zz = (zs << 4) + z;
+                        values[y << 8 | z << 4 | x] = y < layers && xx < this.width && zz < this.height ? slab[(y * this.height + zz) * this.width + xx] : 0;
+                     }
+                  }
+               }
+
+               this.setSection(this.getSectionIndex(xs, ys, zs), Section.of(values));
+            }
+         }
+      }
+
+   }
+}
@@ -14,9 +14,20 @@ public class Chunk {
    public final int y1;
    public final int z1;
    private boolean dirty = true;
+   private boolean building = false;
+   private volatile int generation = 0;
+   public boolean attached = true;
+   public boolean queued = false;
+   public int priority;
+   public float distanceSq;
+   public int solidCount;
+   public int exposedCount;
+   public long visibility = VisibilityGraph.ALL;
    private int lists = -1;
-   private static int texture = Textures.loadTexture("/terrain.png", 9728);
-   private static Tesselator t = new Tesselator();
+   private static int texture = -1;
+   private static int[] tileTextures;
+   private static ChunkTesselator t = new ChunkTesselator();
+   public static boolean greedyMeshing = false;
    public static int rebuiltThisFrame = 0;
    public static int updates = 0;
 
@@ -29,53 +40,164 @@ public class Chunk {
       this.y1 = y1;
       this.z1 = z1;
       this.aabb = new AABB((float)x0, (float)y0, (float)z0, (float)x1, (float)y1, (float)z1);
-      this.lists = GL11.glGenLists(2);
+      this.updateCounts();
    }
 
-   private void rebuild(int layer) {
-      if (rebuiltThisFrame != 2) {
-         this.dirty = false;
-         ++updates;
-         ++rebuiltThisFrame;
-         GL11.glNewList(this.lists + layer, 4864);
-         GL11.glEnable(3553);
-         GL11.glBindTexture(3553, texture);
-         t.init();
-         @SuppressWarnings("unused")
-         int tiles = 0;
+   public void updateCounts() {
+      int[] rows = new int[324];
+      int wx = this.x0 >> 6;
+      int shift = this.x0 & 63;
 
+      for(int y = -1; y <= 16; ++y) {
+         for(int z = -1; z <= 16; ++z) {
+            int yy = this.y0 + y;
+            int zz = this.z0 + z;
+            long word = this.level.getSolidWord(wx, yy, zz);
+            long left = shift == 0 ? this.level.getSolidWord(wx - 1, yy, zz) >>> 63 : word >>> shift - 1;
+            long right = shift == 48 ? this.level.getSolidWord(wx + 1, yy, zz) : word >>> shift + 16;
+            int row = (int)(word >>> shift & 65535L) << 1 | (int)(left & 1L) | (int)(right & 1L) << 17;
+            rows[(y + 1) * 18 + z + 1] = row;
+         }
+      }
+
+      int solid = 0;
+      int exposed = 0;
+
+      for(int y = 0; y < 16; ++y) {
+         for(int z = 0; z < 16; ++z) {
+            int r = (y + 1) * 18 + z + 1;
+            int row = rows[r] & 131070;
+            if (row != 0) {
+               solid += Integer.bitCount(row);
+               exposed += Integer.bitCount(row & ~(rows[r - 18] & rows[r + 18] & rows[r - 1] & rows[r + 1] & rows[r] << 1 & rows[r] >> 1));
+            }
+         }
+      }
+
+      this.solidCount = solid;
+      this.exposedCount = exposed;
+   }
+
+   public boolean isEmpty() {
+      return this.exposedCount == 0;
+   }
+
+   public boolean isDirty() {
+      return this.dirty;
+   }
+
+   public boolean needsBuild() {
+      return this.dirty && !this.building;
+   }
+
+   public void skipBuild() {
+      this.dirty = false;
+      this.visibility = this.solidCount == 0 ? VisibilityGraph.ALL : VisibilityGraph.NONE;
+   }
+
+   public int beginBuild() {
+      this.dirty = false;
+      this.building = true;
+      return this.generation;
+   }
+
+   public ChunkCache createCache() {
+      SectionSnapshot snapshot = this.level.snapshotSection(this.x0 >> 4, this.y0 >> 4, this.z0 >> 4);
+      return snapshot == null ? null : new ChunkCache(this.level, snapshot);
+   }
+
+   public ChunkMesh[] buildMeshes(ChunkCache cache, ChunkTesselator[] layers, GreedyMesher mesher) {
+      if (greedyMeshing) {
+         ChunkMesh[] meshes = new ChunkMesh[4];
+         if (cache != null) {
+            mesher.build(cache, this.x0, this.y0, this.z0, this.x1, this.y1, this.z1);
+         }
+
+         for(int layer = 0; layer < 2; ++layer) {
+            for(int tex = 0; tex < 2; ++tex) {
+               layers[layer].init();
+               if (cache != null) {
+                  mesher.render(layers[layer], layer, tex);
+               }
+
+               meshes[layer * 2 + tex] = layers[layer].end();
+            }
+         }
+
+         return meshes;
+      }
+
+      layers[0].init();
+      layers[1].init();
+      if (cache != null) {
          for(int x = this.x0; x < this.x1; ++x) {
             for(int y = this.y0; y < this.y1; ++y) {
                for(int z = this.z0; z < this.z1; ++z) {
-                  if (this.level.isTile(x, y, z)) {
+                  int faces = cache.getFaceMask(x, y, z);
+                  if (faces != 0) {
                      int tex = y == this.level.depth * 2 / 3 ? 0 : 1;
-                     ++tiles;
                      if (tex == 0) {
-                        Tile.rock.render(t, this.level, layer, x, y, z);
+                        Tile.rock.render(layers, cache, x, y, z, faces);
                      } else {
-                        Tile.grass.render(t, this.level, layer, x, y, z);
+                        Tile.grass.render(layers, cache, x, y, z, faces);
                      }
                   }
                }
             }
          }
+      }
+
+      return new ChunkMesh[]{layers[0].end(), layers[1].end()};
+   }
+
+   public boolean finishBuild(int generation, ChunkMesh[] meshes, long visibility) {
+      this.building = false;
+      if (meshes != null && generation == this.generation) {
+         this.visibility = visibility;
+         ++updates;
+         ++rebuiltThisFrame;
+         if (texture < 0) {
+            texture = Textures.loadTexture("/terrain.png", 9728);
+            tileTextures = new int[]{Textures.loadTileTexture("/terrain.png", Tile.rock.tex, 9728), Textures.loadTileTexture("/terrain.png", Tile.grass.tex, 9728)};
+         }
+
+         int[] textures = meshes.length == 2 ? new int[]{texture} : tileTextures;
+         if (this.lists < 0) {
+            this.lists = GL11.glGenLists(2);
+         }
+
+         for(int layer = 0; layer < 2; ++layer) {
+            GL11.glNewList(this.lists + layer, 4864);
+            GL11.glEnable(3553);
+
+            for(int i = 0; i < textures.length; ++i) {
+               GL11.glBindTexture(3553, textures[i]);
+               t.draw(meshes[layer * textures.length + i]);
+            }
+
+            GL11.glDisable(3553);
+            GL11.glEndList();
+         }
+
+         return true;
+      } else {
+         if (meshes == null) {
+            this.dirty = true;
+         }
 
-         t.flush();
-         GL11.glDisable(3553);
-         GL11.glEndList();
+         return false;
       }
    }
 
    public void render(int layer) {
-      if (this.dirty) {
-         this.rebuild(0);
-         this.rebuild(1);
+      if (this.lists >= 0) {
+         GL11.glCallList(this.lists + layer);
       }
 
-      GL11.glCallList(this.lists + layer);
    }
 
    public void setDirty() {
       this.dirty = true;
+      ++this.generation;
    }
 }
@@ -0,0 +1,76 @@
+package com.mojang.rubydung.level;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+public class ChunkBuilder {
+   public static final int THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+   private static final ExecutorService buildExecutor = Executors.newFixedThreadPool(THREADS, (r) -> {
+      Thread thread = new Thread(r, "Chunk builder");
+      thread.setDaemon(true);
+      return thread;
+   });
+   private static final ThreadLocal<ChunkTesselator[]> tesselators = ThreadLocal.withInitial(() -> new ChunkTesselator[]{new ChunkTesselator(), new ChunkTesselator()});
+   private static final ThreadLocal<GreedyMesher> meshers = ThreadLocal.withInitial(GreedyMesher::new);
+   private static final ThreadLocal<VisibilityGraph> visibilityGraphs = ThreadLocal.withInitial(VisibilityGraph::new);
+   private ConcurrentLinkedQueue<BuiltChunk> builtChunks = new ConcurrentLinkedQueue<>();
+   private int pendingBuilds = 0;
+
+   public void submit(Chunk chunk) {
+      int generation = chunk.beginBuild();
+      ++this.pendingBuilds;
+      buildExecutor.execute(() -> {
+         ChunkMesh[] meshes = null;
+         long visibility = VisibilityGraph.ALL;
+
+         try {
+            ChunkCache cache = chunk.createCache();
+            meshes = chunk.buildMeshes(cache, (ChunkTesselator[])tesselators.get(), (GreedyMesher)meshers.get());
+            if (cache != null) {
+               visibility = ((VisibilityGraph)visibilityGraphs.get()).compute(cache, chunk.x0, chunk.y0, chunk.z0, chunk.x1, chunk.y1, chunk.z1);
+            }
+         } catch (RuntimeException e) {
+            e.printStackTrace();
+         }
+
+         this.builtChunks.add(new BuiltChunk(chunk, generation, meshes, visibility));
+      });
+   }
+
+   public int getPendingBuilds() {
+      return this.pendingBuilds;
+   }
+
+   public int upload(long budgetNanos, Consumer<Chunk> dirtyChunks) {
+      long deadline = System.nanoTime() + budgetNanos;
+      int uploaded = 0;
+
+      BuiltChunk built;
+      while(System.nanoTime() < deadline && (built = (BuiltChunk)this.builtChunks.poll()) != null) {
+         --this.pendingBuilds;
+         if (built.chunk.finishBuild(built.generation, built.meshes, built.visibility)) {
+            ++uploaded;
+         } else if (built.chunk.isDirty()) {
+            dirtyChunks.accept(built.chunk);
+         }
+      }
+
+      return uploaded;
+   }
+
+   private static class BuiltChunk {
+      public final Chunk chunk;
+      public final int generation;
+      public final ChunkMesh[] meshes;
+      public final long visibility;
+
+      public BuiltChunk(Chunk chunk, int generation, ChunkMesh[] meshes, long visibility) {
+         this.chunk = chunk;
+         this.generation = generation;
+         this.meshes = meshes;
+         this.visibility = visibility;
+      }
+   }
+}
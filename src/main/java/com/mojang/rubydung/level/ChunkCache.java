@@ -0,0 +1,111 @@
+package com.mojang.rubydung.level;
+
+public class ChunkCache implements LevelSource {
+   public final Level level;
+   private final SectionSnapshot snapshot;
+   private final int x0;
+   private final int y0;
+   private final int z0;
+   private byte[] faceMasks;
+
+   public ChunkCache(Level level, SectionSnapshot snapshot) {
+      this.level = level;
+      this.snapshot = snapshot;
+      this.x0 = snapshot.xs << 4;
+      this.y0 = snapshot.ys << 4;
+      this.z0 = snapshot.zs << 4;
+   }
+
+   public boolean isTile(int x, int y, int z) {
+      return x >= 0 && y >= 0 && z >= 0 && x < this.level.width && y < this.level.depth && z < this.level.height && this.snapshot.get(x - this.x0, y - this.y0, z - this.z0) == 1;
+   }
+
+   public boolean isSolidTile(int x, int y, int z) {
+      return this.isTile(x, y, z);
+   }
+
+   public float getBrightness(int x, int y, int z) {
+      return this.level.getBrightness(x, y, z);
+   }
+
+   public int getFaceMask(int x, int y, int z) {
+      if (this.faceMasks == null) {
+         this.buildFaceMasks();
+      }
+
+      return this.faceMasks[(y - this.y0) << 8 | (z - this.z0) << 4 | x - this.x0];
+   }
+
+   private void buildFaceMasks() {
+      byte[] values = new byte[4096];
+      int[] rows = new int[324];
+      this.snapshot.getAll(values);
+
+      for(int i = 0; i < 4096; ++i) {
+         if (values[i] == 1) {
+            rows[((i >> 8) + 1) * 18 + (i >> 4 & 15) + 1] |= 1 << (i & 15) + 1;
+         }
+      }
+
+      byte[] border = new byte[256];
+
+      for(int face = 0; face < 6; ++face) {
+         this.snapshot.getBorder(face, border);
+
+         for(int a = 0; a < 16; ++a) {
+            for(int b = 0; b < 16; ++b) {
+               if (border[a << 4 | b] == 1) {
+                  if (face < 2) {
+                     rows[(face == 0 ? 0 : 17) * 18 + a + 1] |= 1 << b + 1;
+                  } else if (face < 4) {
+                     rows[(a + 1) * 18 + (face == 2 ? 0 : 17)] |= 1 << b + 1;
+                  } else {
+                     rows[(a + 1) * 18 + b + 1] |= face == 4 ? 1 : 131072;
+                  }
+               }
+            }
+         }
+      }
+
+      int valid = 0;
+
+      for(int x = -1; x <= 16; ++x) {
+         if (this.x0 + x >= 0 && this.x0 + x < this.level.width) {
+            valid |= 1 << x + 1;
+         }
+      }
+
+      for(int y = -1; y <= 16; ++y) {
+         for(int z = -1; z <= 16; ++z) {
+            boolean inside = this.y0 + y >= 0 && this.y0 + y < this.level.depth && this.z0 + z >= 0 && this.z0 + z < this.level.height;
+            rows[(y + 1) * 18 + z + 1] &= inside ? valid : 0;
+         }
+      }
+
+      this.faceMasks = new byte[4096];
+
+      for(int y = 0; y < 16; ++y) {
+         for(int z = 0; z < 16; ++z) {
+            int r = (y + 1) * 18 + z + 1;
+            int row = rows[r];
+            if (row != 0) {
+               int down = row & ~rows[r - 18];
+               int up = row & ~rows[r + 18];
+               int north = row & ~rows[r - 1];
+               int south = row & ~rows[r + 1];
+               int west = row & ~(row << 1);
+               int east = row & ~(row >> 1);
+               int exposed = down | up | north | south | west | east;
+
+               for(int x = 0; x < 16; ++x) {
+                  if ((exposed >> x + 1 & 1) != 0) {
+                     int b = x + 1;
+                     this.faceMasks[y << 8 | z << 4 | x] = (byte)((down >> b & 1) | (up >> b & 1) << 1 | (north >> b & 1) << 2 | (south >> b & 1) << 3 | (west >> b & 1) << 4 | (east >> b & 1) << 5);
+                  }
+               }
+            }
+         }
+      }
+
+   }
+}
@@ -0,0 +1,23 @@
+package com.mojang.rubydung.level;
+
+public class ChunkMesh {
+   public final int vertices;
+   public final byte[] data;
+   public final int xo;
+   public final int yo;
+   public final int zo;
+   public final float texScale;
+   public final boolean hasTexture;
+   public final boolean hasColor;
+
+   public ChunkMesh(int vertices, byte[] data, int xo, int yo, int zo, float texScale, boolean hasTexture, boolean hasColor) {
+      this.vertices = vertices;
+      this.data = data;
+      this.xo = xo;
+      this.yo = yo;
+      this.zo = zo;
+      this.texScale = texScale;
+      this.hasTexture = hasTexture;
+      this.hasColor = hasColor;
+   }
+}
@@ -0,0 +1,140 @@
+package com.mojang.rubydung.level;
+
+import java.nio.ByteBuffer;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+
+public class ChunkTesselator {
+   private static final int MAX_VERTICES = 100000;
+   public static final int STRIDE = 16;
+   public static final float TEX_SCALE = 16000.0F;
+   private ByteBuffer buffer = BufferUtils.createByteBuffer(MAX_VERTICES * STRIDE);
+   private int vertices = 0;
+   private int xo;
+   private int yo;
+   private int zo;
+   private float texScale = TEX_SCALE;
+   private short u;
+   private short v;
+   private int rgba = -1;
+   private boolean hasColor = false;
+   private boolean hasTexture = false;
+
+   public void flush() {
+      GL11.glPushMatrix();
+      GL11.glTranslatef((float)this.xo, (float)this.yo, (float)this.zo);
+      this.buffer.position(0);
+      GL11.glVertexPointer(3, 5122, STRIDE, this.buffer);
+      if (this.hasTexture) {
+         this.buffer.position(8);
+         GL11.glTexCoordPointer(2, 5122, STRIDE, this.buffer);
+         GL11.glMatrixMode(5890);
+         GL11.glPushMatrix();
+         GL11.glScalef(1.0F / this.texScale, 1.0F / this.texScale, 1.0F);
+      }
+
+      if (this.hasColor) {
+         this.buffer.position(12);
+         GL11.glColorPointer(4, 5121, STRIDE, this.buffer);
+      }
+
+      this.buffer.position(0);
+      GL11.glEnableClientState(32884);
+      if (this.hasTexture) {
+         GL11.glEnableClientState(32888);
+      }
+
+      if (this.hasColor) {
+         GL11.glEnableClientState(32886);
+      }
+
+      GL11.glDrawArrays(7, 0, this.vertices);
+      GL11.glDisableClientState(32884);
+      if (this.hasTexture) {
+         GL11.glDisableClientState(32888);
+         GL11.glPopMatrix();
+         GL11.glMatrixMode(5888);
+      }
+
+      if (this.hasColor) {
+         GL11.glDisableClientState(32886);
+      }
+
+      GL11.glPopMatrix();
+      this.clear();
+   }
+
+   private void clear() {
+      this.vertices = 0;
+      this.buffer.clear();
+   }
+
+   public ChunkMesh end() {
+      byte[] data = new byte[this.vertices * STRIDE];
+      this.buffer.get(data, 0, data.length);
+      ChunkMesh mesh = new ChunkMesh(this.vertices, data, this.xo, this.yo, this.zo, this.texScale, this.hasTexture, this.hasColor);
+      this.clear();
+      return mesh;
+   }
+
+   public void draw(ChunkMesh mesh) {
+      this.init();
+      if (mesh.vertices > 0) {
+         this.buffer.put(mesh.data);
+         this.xo = mesh.xo;
+         this.yo = mesh.yo;
+         this.zo = mesh.zo;
+         this.texScale = mesh.texScale;
+         this.hasTexture = mesh.hasTexture;
+         this.hasColor = mesh.hasColor;
+         this.vertices = mesh.vertices;
+         this.flush();
+      }
+   }
+
+   public void init() {
+      this.clear();
+      this.texScale = TEX_SCALE;
+      this.hasColor = false;
+      this.hasTexture = false;
+   }
+
+   public void texScale(float texScale) {
+      this.texScale = texScale;
+   }
+
+   public void tex(float u, float v) {
+      this.hasTexture = true;
+      this.u = (short)Math.round(u * this.texScale);
+      this.v = (short)Math.round(v * this.texScale);
+   }
+
+   public void color(float r, float g, float b) {
+      this.hasColor = true;
+      this.rgba = (int)(r * 255.0F + 0.5F) | (int)(g * 255.0F + 0.5F) << 8 | (int)(b * 255.0F + 0.5F) << 16 | -16777216;
+   }
+
+   public void vertex(float x, float y, float z) {
+      if (this.vertices == 0) {
+         this.xo = (int)Math.floor((double)x);
+         this.yo = (int)Math.floor((double)y);
+         this.zo = (int)Math.floor((double)z);
+      }
+
+      int p = this.vertices * STRIDE;
+      this.buffer.putShort(p + 0, (short)Math.round(x - (float)this.xo));
+      this.buffer.putShort(p + 2, (short)Math.round(y - (float)this.yo));
+      this.buffer.putShort(p + 4, (short)Math.round(z - (float)this.zo));
+      this.buffer.putShort(p + 8, this.u);
+      this.buffer.putShort(p + 10, this.v);
+      this.buffer.put(p + 12, (byte)this.rgba);
+      this.buffer.put(p + 13, (byte)(this.rgba >> 8));
+      this.buffer.put(p + 14, (byte)(this.rgba >> 16));
+      this.buffer.put(p + 15, (byte)(this.rgba >> 24));
+      ++this.vertices;
+      if (this.vertices == MAX_VERTICES) {
+         this.flush();
+      }
+
+   }
+}
@@ -0,0 +1,85 @@
+package com.mojang.rubydung.level;
+
+import java.util.BitSet;
+
+public class EditBatch {
+   private final BlockStorage blocks;
+   private final BitSet touchedSections = new BitSet();
+
+   public EditBatch(BlockStorage blocks) {
+      this.blocks = blocks;
+   }
+
+   public BitSet getTouchedSections() {
+      return this.touchedSections;
+   }
+
+   public void set(int x, int y, int z, int type) {
+      if (x >= 0 && y >= 0 && z >= 0 && x < this.blocks.width && y < this.blocks.depth && z < this.blocks.height) {
+         int i = this.blocks.getSectionIndex(x >> 4, y >> 4, z >> 4);
+         if (this.blocks.getSection(i) != null && this.blocks.get(x, y, z) != type) {
+            this.blocks.set(x, y, z, (byte)type);
+            this.touchedSections.set(i);
+         }
+      }
+
+   }
+
+   public void fill(int x0, int y0, int z0, int x1, int y1, int z1, int type) {
+      x0 = Math.max(0, x0);
+      y0 = Math.max(0, y0);
+      z0 = Math.max(0, z0);
+      x1 = Math.min(this.blocks.width, x1);
+      y1 = Math.min(this.blocks.depth, y1);
+      z1 = Math.min(this.blocks.height, z1);
+      if (x0 < x1 && y0 < y1 && z0 < z1) {
+         this.blocks.fill(x0, y0, z0, x1, y1, z1, (byte)type);
+         this.touch(x0, y0, z0, x1, y1, z1);
+      }
+   }
+
+   public void replace(int x0, int y0, int z0, int x1, int y1, int z1, int from, int to) {
+      x0 = Math.max(0, x0);
+      y0 = Math.max(0, y0);
+      z0 = Math.max(0, z0);
+      x1 = Math.min(this.blocks.width, x1);
+      y1 = Math.min(this.blocks.depth, y1);
+      z1 = Math.min(this.blocks.height, z1);
+
+      for(int ys = y0 >> 4; ys < y1 + 15 >> 4; ++ys) {
+         for(int zs = z0 >> 4; zs < z1 + 15 >> 4; ++zs) {
+            for(int xs = x0 >> 4; xs < x1 + 15 >> 4; ++xs) {
+               int i = this.blocks.getSectionIndex(xs, ys, zs);
+               Section section = this.blocks.getSection(i);
+               if (section != null && (!section.isUniform() || section.get(0) == from)) {
+                  for(int y = Math.max(y0, ys << 4); y < Math.min(y1, ys + 1 << 4); ++y) {
+                     for(int z = Math.max(z0, zs << 4); z < Math.min(z1, zs + 1 << 4); ++z) {
+                        for(int x = Math.max(x0, xs << 4); x < Math.min(x1, xs + 1 << 4); ++x) {
+                           if (this.blocks.get(x, y, z) == from) {
+                              this.blocks.set(x, y, z, (byte)to);
+                              this.touchedSections.set(i);
+                           }
+                        }
+                     }
+                  }
+               }
+            }
+         }
+      }
+
+   }
+
+   private void touch(int x0, int y0, int z0, int x1, int y1, int z1) {
+      for(int ys = y0 >> 4; ys <= y1 - 1 >> 4; ++ys) {
+         for(int zs = z0 >> 4; zs <= z1 - 1 >> 4; ++zs) {
+            for(int xs = x0 >> 4; xs <= x1 - 1 >> 4; ++xs) {
+               int i = this.blocks.getSectionIndex(xs, ys, zs);
+               if (this.blocks.getSection(i) != null) {
+                  this.touchedSections.set(i);
+               }
+            }
+         }
+      }
+
+   }
+}
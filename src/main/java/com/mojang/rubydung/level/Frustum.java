@@ -1,12 +1,14 @@
 package com.mojang.rubydung.level;
 
+import com.mojang.rubydung.Player;
 import com.mojang.rubydung.phys.AABB;
 import java.nio.FloatBuffer;
+import java.util.Arrays;
 import org.lwjgl.BufferUtils;
 import org.lwjgl.opengl.GL11;
 
 public class Frustum {
-   public float[][] m_Frustum = new float[6][4];
+   public float[] planes = new float[24];
    public static final int RIGHT = 0;
    public static final int LEFT = 1;
    public static final int BOTTOM = 2;
@@ -33,12 +35,9 @@ public class Frustum {
       return frustum;
    }
 
-   private void normalizePlane(float[][] frustum, int side) {
-      float magnitude = (float)Math.sqrt((double)(frustum[side][0] * frustum[side][0] + frustum[side][1] * frustum[side][1] + frustum[side][2] * frustum[side][2]));
-      frustum[side][0] /= magnitude;
-      frustum[side][1] /= magnitude;
-      frustum[side][2] /= magnitude;
-      frustum[side][3] /= magnitude;
+   public static Frustum getFrustum(Player player, float a, float fov, float aspect, float zNear, float zFar) {
+      frustum.calculateFrustum(player, a, fov, aspect, zNear, zFar);
+      return frustum;
    }
 
    private void calculateFrustum() {
@@ -51,6 +50,41 @@ public class Frustum {
       this._proj.get(this.proj);
       this._modl.flip().limit(16);
       this._modl.get(this.modl);
+      this.extractPlanes();
+   }
+
+   private void calculateFrustum(Player player, float a, float fov, float aspect, float zNear, float zFar) {
+      float f = (float)(1.0D / Math.tan(Math.toRadians((double)(fov / 2.0F))));
+      Arrays.fill(this.proj, 0.0F);
+      Arrays.fill(this.modl, 0.0F);
+      this.proj[0] = f / aspect;
+      this.proj[5] = f;
+      this.proj[10] = (zFar + zNear) / (zNear - zFar);
+      this.proj[11] = -1.0F;
+      this.proj[14] = 2.0F * zFar * zNear / (zNear - zFar);
+      float sx = (float)Math.sin(Math.toRadians((double)player.xRot));
+      float cx = (float)Math.cos(Math.toRadians((double)player.xRot));
+      float sy = (float)Math.sin(Math.toRadians((double)player.yRot));
+      float cy = (float)Math.cos(Math.toRadians((double)player.yRot));
+      float x = player.xo + (player.x - player.xo) * a;
+      float y = player.yo + (player.y - player.yo) * a;
+      float z = player.zo + (player.z - player.zo) * a;
+      this.modl[0] = cy;
+      this.modl[1] = sx * sy;
+      this.modl[2] = -cx * sy;
+      this.modl[5] = cx;
+      this.modl[6] = sx;
+      this.modl[8] = sy;
+      this.modl[9] = -sx * cy;
+      this.modl[10] = cx * cy;
+      this.modl[12] = -(this.modl[0] * x + this.modl[4] * y + this.modl[8] * z);
+      this.modl[13] = -(this.modl[1] * x + this.modl[5] * y + this.modl[9] * z);
+      this.modl[14] = -(this.modl[2] * x + this.modl[6] * y + this.modl[10] * z) - 0.3F;
+      this.modl[15] = 1.0F;
+      this.extractPlanes();
+   }
+
+   private void extractPlanes() {
       this.clip[0] = this.modl[0] * this.proj[0] + this.modl[1] * this.proj[4] + this.modl[2] * this.proj[8] + this.modl[3] * this.proj[12];
       this.clip[1] = this.modl[0] * this.proj[1] + this.modl[1] * this.proj[5] + this.modl[2] * this.proj[9] + this.modl[3] * this.proj[13];
       this.clip[2] = this.modl[0] * this.proj[2] + this.modl[1] * this.proj[6] + this.modl[2] * this.proj[10] + this.modl[3] * this.proj[14];
@@ -67,41 +101,28 @@ public class Frustum {
       this.clip[13] = this.modl[12] * this.proj[1] + this.modl[13] * this.proj[5] + this.modl[14] * this.proj[9] + this.modl[15] * this.proj[13];
       this.clip[14] = this.modl[12] * this.proj[2] + this.modl[13] * this.proj[6] + this.modl[14] * this.proj[10] + this.modl[15] * this.proj[14];
       this.clip[15] = this.modl[12] * this.proj[3] + this.modl[13] * this.proj[7] + this.modl[14] * this.proj[11] + this.modl[15] * this.proj[15];
-      this.m_Frustum[0][0] = this.clip[3] - this.clip[0];
-      this.m_Frustum[0][1] = this.clip[7] - this.clip[4];
-      this.m_Frustum[0][2] = this.clip[11] - this.clip[8];
-      this.m_Frustum[0][3] = this.clip[15] - this.clip[12];
-      this.normalizePlane(this.m_Frustum, 0);
-      this.m_Frustum[1][0] = this.clip[3] + this.clip[0];
-      this.m_Frustum[1][1] = this.clip[7] + this.clip[4];
-      this.m_Frustum[1][2] = this.clip[11] + this.clip[8];
-      this.m_Frustum[1][3] = this.clip[15] + this.clip[12];
-      this.normalizePlane(this.m_Frustum, 1);
-      this.m_Frustum[2][0] = this.clip[3] + this.clip[1];
-      this.m_Frustum[2][1] = this.clip[7] + this.clip[5];
-      this.m_Frustum[2][2] = this.clip[11] + this.clip[9];
-      this.m_Frustum[2][3] = this.clip[15] + this.clip[13];
-      this.normalizePlane(this.m_Frustum, 2);
-      this.m_Frustum[3][0] = this.clip[3] - this.clip[1];
-      this.m_Frustum[3][1] = this.clip[7] - this.clip[5];
-      this.m_Frustum[3][2] = this.clip[11] - this.clip[9];
-      this.m_Frustum[3][3] = this.clip[15] - this.clip[13];
-      this.normalizePlane(this.m_Frustum, 3);
-      this.m_Frustum[4][0] = this.clip[3] - this.clip[2];
-      this.m_Frustum[4][1] = this.clip[7] - this.clip[6];
-      this.m_Frustum[4][2] = this.clip[11] - this.clip[10];
-      this.m_Frustum[4][3] = this.clip[15] - this.clip[14];
-      this.normalizePlane(this.m_Frustum, 4);
-      this.m_Frustum[5][0] = this.clip[3] + this.clip[2];
-      this.m_Frustum[5][1] = this.clip[7] + this.clip[6];
-      this.m_Frustum[5][2] = this.clip[11] + this.clip[10];
-      this.m_Frustum[5][3] = this.clip[15] + this.clip[14];
-      this.normalizePlane(this.m_Frustum, 5);
+      this.setPlane(RIGHT, this.clip[3] - this.clip[0], this.clip[7] - this.clip[4], this.clip[11] - this.clip[8], this.clip[15] - this.clip[12]);
+      this.setPlane(LEFT, this.clip[3] + this.clip[0], this.clip[7] + this.clip[4], this.clip[11] + this.clip[8], this.clip[15] + this.clip[12]);
+      this.setPlane(BOTTOM, this.clip[3] + this.clip[1], this.clip[7] + this.clip[5], this.clip[11] + this.clip[9], this.clip[15] + this.clip[13]);
+      this.setPlane(TOP, this.clip[3] - this.clip[1], this.clip[7] - this.clip[5], this.clip[11] - this.clip[9], this.clip[15] - this.clip[13]);
+      this.setPlane(BACK, this.clip[3] - this.clip[2], this.clip[7] - this.clip[6], this.clip[11] - this.clip[10], this.clip[15] - this.clip[14]);
+      this.setPlane(FRONT, this.clip[3] + this.clip[2], this.clip[7] + this.clip[6], this.clip[11] + this.clip[10], this.clip[15] + this.clip[14]);
+   }
+
+   private void setPlane(int side, float a, float b, float c, float d) {
+      float magnitude = (float)Math.sqrt((double)(a * a + b * b + c * c));
+      int i = side * 4;
+      this.planes[i + A] = a / magnitude;
+      this.planes[i + B] = b / magnitude;
+      this.planes[i + C] = c / magnitude;
+      this.planes[i + D] = d / magnitude;
    }
 
    public boolean pointInFrustum(float x, float y, float z) {
-      for(int i = 0; i < 6; ++i) {
-         if (this.m_Frustum[i][0] * x + this.m_Frustum[i][1] * y + this.m_Frustum[i][2] * z + this.m_Frustum[i][3] <= 0.0F) {
+      float[] p = this.planes;
+
+      for(int i = 0; i < 24; i += 4) {
+         if (p[i] * x + p[i + 1] * y + p[i + 2] * z + p[i + 3] <= 0.0F) {
             return false;
          }
       }
@@ -110,8 +131,10 @@ public class Frustum {
    }
 
    public boolean sphereInFrustum(float x, float y, float z, float radius) {
-      for(int i = 0; i < 6; ++i) {
-         if (this.m_Frustum[i][0] * x + this.m_Frustum[i][1] * y + this.m_Frustum[i][2] * z + this.m_Frustum[i][3] <= -radius) {
+      float[] p = this.planes;
+
+      for(int i = 0; i < 24; i += 4) {
+         if (p[i] * x + p[i + 1] * y + p[i + 2] * z + p[i + 3] <= -radius) {
             return false;
          }
       }
@@ -120,36 +143,10 @@ public class Frustum {
    }
 
    public boolean cubeFullyInFrustum(float x1, float y1, float z1, float x2, float y2, float z2) {
-      for(int i = 0; i < 6; ++i) {
-         if (!(this.m_Frustum[i][0] * x1 + this.m_Frustum[i][1] * y1 + this.m_Frustum[i][2] * z1 + this.m_Frustum[i][3] > 0.0F)) {
-            return false;
-         }
-
-         if (!(this.m_Frustum[i][0] * x2 + this.m_Frustum[i][1] * y1 + this.m_Frustum[i][2] * z1 + this.m_Frustum[i][3] > 0.0F)) {
-            return false;
-         }
-
-         if (!(this.m_Frustum[i][0] * x1 + this.m_Frustum[i][1] * y2 + this.m_Frustum[i][2] * z1 + this.m_Frustum[i][3] > 0.0F)) {
-            return false;
-         }
-
-         if (!(this.m_Frustum[i][0] * x2 + this.m_Frustum[i][1] * y2 + this.m_Frustum[i][2] * z1 + this.m_Frustum[i][3] > 0.0F)) {
-            return false;
-         }
-
-         if (!(this.m_Frustum[i][0] * x1 + this.m_Frustum[i][1] * y1 + this.m_Frustum[i][2] * z2 + this.m_Frustum[i][3] > 0.0F)) {
-            return false;
-         }
+      float[] p = this.planes;
 
-         if (!(this.m_Frustum[i][0] * x2 + this.m_Frustum[i][1] * y1 + this.m_Frustum[i][2] * z2 + this.m_Frustum[i][3] > 0.0F)) {
-            return false;
-         }
-
-         if (!(this.m_Frustum[i][0] * x1 + this.m_Frustum[i][1] * y2 + this.m_Frustum[i][2] * z2 + this.m_Frustum[i][3] > 0.0F)) {
-            return false;
-         }
-
-         if (!(this.m_Frustum[i][0] * x2 + this.m_Frustum[i][1] * y2 + this.m_Frustum[i][2] * z2 + this.m_Frustum[i][3] > 0.0F)) {
+      for(int i = 0; i < 24; i += 4) {
+         if (!(p[i] * (p[i] > 0.0F ? x1 : x2) + p[i + 1] * (p[i + 1] > 0.0F ? y1 : y2) + p[i + 2] * (p[i + 2] > 0.0F ? z1 : z2) + p[i + 3] > 0.0F)) {
             return false;
          }
       }
@@ -158,8 +155,10 @@ public class Frustum {
    }
 
    public boolean cubeInFrustum(float x1, float y1, float z1, float x2, float y2, float z2) {
-      for(int i = 0; i < 6; ++i) {
-         if (!(this.m_Frustum[i][0] * x1 + this.m_Frustum[i][1] * y1 + this.m_Frustum[i][2] * z1 + this.m_Frustum[i][3] > 0.0F) && !(this.m_Frustum[i][0] * x2 + this.m_Frustum[i][1] * y1 + this.m_Frustum[i][2] * z1 + this.m_Frustum[i][3] > 0.0F) && !(this.m_Frustum[i][0] * x1 + this.m_Frustum[i][1] * y2 + this.m_Frustum[i][2] * z1 + this.m_Frustum[i][3] > 0.0F) && !(this.m_Frustum[i][0] * x2 + this.m_Frustum[i][1] * y2 + this.m_Frustum[i][2] * z1 + this.m_Frustum[i][3] > 0.0F) && !(this.m_Frustum[i][0] * x1 + this.m_Frustum[i][1] * y1 + this.m_Frustum[i][2] * z2 + this.m_Frustum[i][3] > 0.0F) && !(this.m_Frustum[i][0] * x2 + this.m_Frustum[i][1] * y1 + this.m_Frustum[i][2] * z2 + this.m_Frustum[i][3] > 0.0F) && !(this.m_Frustum[i][0] * x1 + this.m_Frustum[i][1] * y2 + this.m_Frustum[i][2] * z2 + this.m_Frustum[i][3] > 0.0F) && !(this.m_Frustum[i][0] * x2 + this.m_Frustum[i][1] * y2 + this.m_Frustum[i][2] * z2 + this.m_Frustum[i][3] > 0.0F)) {
+      float[] p = this.planes;
+
+      for(int i = 0; i < 24; i += 4) {
+         if (!(p[i] * (p[i] > 0.0F ? x2 : x1) + p[i + 1] * (p[i + 1] > 0.0F ? y2 : y1) + p[i + 2] * (p[i + 2] > 0.0F ? z2 : z1) + p[i + 3] > 0.0F)) {
             return false;
          }
       }
@@ -0,0 +1,132 @@
+package com.mojang.rubydung.level;
+
+import java.util.Arrays;
+
+public class GreedyMesher {
+   private static final float[] SHADES = new float[]{1.0F, 1.0F, 0.8F, 0.8F, 0.6F, 0.6F};
+   private final int[] tiles = new int[256];
+   private final float[] brightness = new float[256];
+   private int[] quads = new int[1024];
+   private int quadCount;
+
+   public void build(ChunkCache cache, int x0, int y0, int z0, int x1, int y1, int z1) {
+      this.quadCount = 0;
+
+      for(int face = 0; face < 6; ++face) {
+         int axis = face >> 1;
+         int nx = face == 4 ? -1 : (face == 5 ? 1 : 0);
+         int ny = face == 0 ? -1 : (face == 1 ? 1 : 0);
+         int nz = face == 2 ? -1 : (face == 3 ? 1 : 0);
+         int s0 = axis == 0 ? y0 : (axis == 1 ? z0 : x0);
+         int s1 = axis == 0 ? y1 : (axis == 1 ? z1 : x1);
+         int a0 = axis == 2 ? z0 : x0;
+         int a1 = axis == 2 ? z1 : x1;
+         int b0 = axis == 0 ? z0 : y0;
+         int b1 = axis == 0 ? z1 : y1;
+
+         for(int s = s0; s < s1; ++s) {
+            Arrays.fill(this.tiles, 0);
+
+            for(int b = b0; b < b1; ++b) {
+               for(int a = a0; a < a1; ++a) {
+                  int x = axis == 2 ? s : a;
+                  int y = axis == 0 ? s : b;
+                  int z = axis == 0 ? b : (axis == 1 ? s : a);
+                  if ((cache.getFaceMask(x, y, z) >> face & 1) != 0) {
+                     int i = (b - b0) << 4 | a - a0;
+                     this.tiles[i] = (y == cache.level.depth * 2 / 3 ? Tile.rock : Tile.grass).tex + 1;
+                     this.brightness[i] = cache.getBrightness(x + nx, y + ny, z + nz) * SHADES[face];
+                  }
+               }
+            }
+
+            for(int b = 0; b < b1 - b0; ++b) {
+               for(int a = 0; a < a1 - a0; ) {
+                  int tile = this.tiles[b << 4 | a];
+                  if (tile == 0) {
+                     ++a;
+                  } else {
+                     float br = this.brightness[b << 4 | a];
+                     int w = 1;
+
+                     while(a + w < a1 - a0 && this.matches(b << 4 | a + w, tile, br)) {
+                        ++w;
+                     }
+
+                     int h = 1;
+
+                     while(b + h < b1 - b0 && this.matchesRow((b + h) << 4 | a, w, tile, br)) {
+                        ++h;
+                     }
+
+                     for(int bb = b; bb < b + h; ++bb) {
+                        Arrays.fill(this.tiles, bb << 4 | a, (bb << 4 | a) + w, 0);
+                     }
+
+                     this.addQuad(face, s, a0 + a, b0 + b, w, h, tile - 1, br);
+                     a += w;
+                  }
+               }
+            }
+         }
+      }
+
+   }
+
+   private boolean matches(int i, int tile, float br) {
+      return this.tiles[i] == tile && this.brightness[i] == br;
+   }
+
+   private boolean matchesRow(int i, int w, int tile, float br) {
+      for(int j = i; j < i + w; ++j) {
+         if (!this.matches(j, tile, br)) {
+            return false;
+         }
+      }
+
+      return true;
+   }
+
+   private void addQuad(int face, int s, int a, int b, int w, int h, int tex, float br) {
+      if (this.quadCount * 8 == this.quads.length) {
+         this.quads = Arrays.copyOf(this.quads, this.quads.length * 2);
+      }
+
+      int i = this.quadCount++ * 8;
+      this.quads[i] = face;
+      this.quads[i + 1] = s;
+      this.quads[i + 2] = a;
+      this.quads[i + 3] = b;
+      this.quads[i + 4] = w;
+      this.quads[i + 5] = h;
+      this.quads[i + 6] = tex;
+      this.quads[i + 7] = Float.floatToIntBits(br);
+   }
+
+   public void render(ChunkTesselator t, int layer, int tex) {
+      t.texScale(1024.0F);
+
+      for(int q = 0; q < this.quadCount; ++q) {
+         int i = q * 8;
+         int face = this.quads[i];
+         float br = Float.intBitsToFloat(this.quads[i + 7]);
+         if (this.quads[i + 6] == tex && (br == SHADES[face] ^ layer == 1)) {
+            int axis = face >> 1;
+            float s = (float)this.quads[i + 1];
+            float a = (float)this.quads[i + 2];
+            float b = (float)this.quads[i + 3];
+            float w = (float)this.quads[i + 4];
+            float h = (float)this.quads[i + 5];
+            float x0 = axis == 2 ? s : a;
+            float x1 = axis == 2 ? s + 1.0F : a + w;
+            float y0 = axis == 0 ? s : b;
+            float y1 = axis == 0 ? s + 1.0F : b + h;
+            float z0 = axis == 0 ? b : (axis == 1 ? s : a);
+            float z1 = axis == 0 ? b + h : (axis == 1 ? s + 1.0F : a + w);
+            t.color(br, br, br);
+            Tile.rock.renderQuad(t, face, x0, y0, z0, x1, y1, z1, 0.0F, w, 0.0F, h);
+         }
+      }
+
+   }
+}
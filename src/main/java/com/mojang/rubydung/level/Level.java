@@ -1,54 +1,152 @@
 package com.mojang.rubydung.level;
 
+import com.mojang.rubydung.HitResult;
 import com.mojang.rubydung.phys.AABB;
 import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
-public class Level {
+public class Level implements LevelSource {
+   private static final int[] NEIGHBOUR_X = new int[]{0, 0, 0, 0, -1, 1};
+   private static final int[] NEIGHBOUR_Y = new int[]{-1, 1, 0, 0, 0, 0};
+   private static final int[] NEIGHBOUR_Z = new int[]{0, 0, -1, 1, 0, 0};
+   private static final ExecutorService saveExecutor = Executors.newSingleThreadExecutor((r) -> {
+      Thread thread = new Thread(r, "Level saver");
+      thread.setDaemon(true);
+      return thread;
+   });
+   private static final ExecutorService loadExecutor = Executors.newSingleThreadExecutor((r) -> {
+      Thread thread = new Thread(r, "Level loader");
+      thread.setDaemon(true);
+      return thread;
+   });
    public final int width;
    public final int height;
    public final int depth;
-   private byte[] blocks;
+   private BlockStorage blocks;
+   private final OccupancyIndex occupancy;
    private int[] lightDepths;
-   private ArrayList<LevelListener> levelListeners = new ArrayList<>();
+   private LightEngine lightEngine;
+   private List<LevelListener> levelListeners = new CopyOnWriteArrayList<>();
+   private StampedLock[] sectionLocks;
+   private final File file;
+   private BitSet dirtySections = new BitSet();
+   private boolean regionSynced = false;
+   private volatile boolean saveFailed = false;
+   private SaveMetrics saveMetrics;
+   private RegionFile streamRegion;
+   public final int streamRadius;
+   public int maxResidentColumns;
+   private LinkedHashMap<Integer, Boolean> residentColumns = new LinkedHashMap<>(16, 0.75F, true);
+   private HashSet<Integer> pendingColumns = new HashSet<>();
+   private ConcurrentLinkedQueue<StreamedColumn> arrivedColumns = new ConcurrentLinkedQueue<>();
+   private ConcurrentHashMap<Integer, Section> evictedSections = new ConcurrentHashMap<>();
 
    public Level(int w, int h, int d) {
+      this(w, h, d, 0);
+   }
+
+   public Level(int w, int h, int d, int streamRadius) {
+      this(w, h, d, streamRadius, new File("level.dat"));
+   }
+
+   public Level(int w, int h, int d, int streamRadius, File file) {
       this.width = w;
       this.height = h;
       this.depth = d;
-      this.blocks = new byte[w * h * d];
-      this.lightDepths = new int[w * h];
+      this.streamRadius = streamRadius;
+      this.file = file;
+      if ((long)w * (long)h > 2147483639L) {
+         throw new IllegalArgumentException("Unsupported level size " + w + "x" + h + "x" + d);
+      }
 
-      for(int x = 0; x < w; ++x) {
-         for(int y = 0; y < d; ++y) {
-            for(int z = 0; z < h; ++z) {
-               int i = (y * this.height + z) * this.width + x;
-               this.blocks[i] = (byte)(y <= d * 2 / 3 ? 1 : 0);
+      this.maxResidentColumns = (2 * streamRadius + 3) * (2 * streamRadius + 3);
+      this.blocks = new BlockStorage(w, h, d);
+      this.lightDepths = new int[w * h];
+      this.occupancy = new OccupancyIndex(w, h, d);
+      if (streamRadius > 0) {
+         this.openStreaming();
+      } else {
+         for(int ys = 0; ys < this.blocks.ySections; ++ys) {
+            for(int zs = 0; zs < this.blocks.zSections; ++zs) {
+               for(int xs = 0; xs < this.blocks.xSections; ++xs) {
+                  this.blocks.setSection(this.blocks.getSectionIndex(xs, ys, zs), this.generateSection(ys));
+               }
             }
          }
+
+         this.rebuildOccupancy();
+         this.relightAll();
+         this.load();
       }
 
-      this.calcLightDepths(0, 0, w, h);
-      this.load();
    }
 
-   public void load() {
+   private Section generateSection(int ys) {
+      int top = this.depth * 2 / 3;
+      if (ys * 16 + 15 <= top) {
+         return new Section((byte)1);
+      } else if (ys * 16 > top) {
+         return new Section((byte)0);
+      } else {
+         byte[] values = new byte[4096];
+
+         for(int i = 0; i < 4096; ++i) {
+            values[i] = (byte)(ys * 16 + (i >> 8) <= top ? 1 : 0);
+         }
+
+         return Section.of(values);
+      }
+   }
+
+   public synchronized void load() {
       try {
-         DataInputStream dis = new DataInputStream(new GZIPInputStream(new FileInputStream(new File("level.dat"))));
-         dis.readFully(this.blocks);
-         this.calcLightDepths(0, 0, this.width, this.height);
+         RegionFile region = RegionFile.open(this.file, this.width, this.height, this.depth, this.blocks.getSectionCount());
+         if (region != null) {
+            try {
+               RegionFile source = region;
+               IntStream.range(0, this.blocks.getSectionCount()).parallel().forEach((i) -> {
+                  try {
+                     Section section = source.readSection(i);
+                     this.blocks.setSection(i, section != null ? section : this.generateSection(i / (this.blocks.xSections * this.blocks.zSections)));
+                  } catch (IOException e) {
+                     throw new UncheckedIOException(e);
+                  }
+               });
+            } finally {
+               region.close();
+            }
 
-         for(int i = 0; i < this.levelListeners.size(); ++i) {
-            ((LevelListener)this.levelListeners.get(i)).allChanged();
+            this.regionSynced = true;
+         } else {
+            DataInputStream dis = new DataInputStream(new GZIPInputStream(new FileInputStream(this.file)));
+            this.blocks.read(dis);
+            dis.close();
+            this.regionSynced = false;
          }
 
-         dis.close();
+         this.dirtySections.clear();
+         this.rebuildOccupancy();
+         this.relightAll();
       } catch (Exception e) {
          e.printStackTrace();
       }
@@ -56,36 +154,634 @@ public class Level {
    }
 
    public void save() {
+      this.saveAsync().join();
+   }
+
+   public synchronized CompletableFuture<Void> saveAsync() {
+      boolean full = !this.regionSynced || this.saveFailed && this.streamRadius == 0;
+      if (full) {
+         this.dirtySections.set(0, this.blocks.getSectionCount());
+      }
+
+      BitSet pending = (BitSet)this.dirtySections.clone();
+
+      for(Integer i : this.evictedSections.keySet()) {
+         pending.set(i);
+      }
+
+      int[] indices = new int[pending.cardinality()];
+      Section[] sections = new Section[indices.length];
+      int n = 0;
+
+      for(int i = pending.nextSetBit(0); i >= 0; i = pending.nextSetBit(i + 1)) {
+         Section section = this.blocks.getSection(i) != null ? this.blocks.share(i) : (Section)this.evictedSections.get(i);
+         if (section != null) {
+            indices[n] = i;
+            sections[n++] = section;
+         }
+      }
+
+      if (n < indices.length) {
+         indices = Arrays.copyOf(indices, n);
+         sections = (Section[])Arrays.copyOf(sections, n);
+      }
+
+      this.dirtySections.clear();
+      this.regionSynced = true;
+      this.saveFailed = false;
+      SaveMetrics metrics = this.saveMetrics;
+      int[] savedIndices = indices;
+      Section[] savedSections = sections;
+      return CompletableFuture.runAsync(() -> {
+         this.writeSections(full, savedIndices, savedSections, metrics);
+      }, saveExecutor);
+   }
+
+   private void writeSections(boolean full, int[] indices, Section[] sections, SaveMetrics metrics) {
+      long start = System.nanoTime();
+      long bytes = 0L;
+
       try {
-         DataOutputStream dos = new DataOutputStream(new GZIPOutputStream(new FileOutputStream(new File("level.dat"))));
-         dos.write(this.blocks);
-         dos.close();
+         RegionFile region = full ? null : (this.streamRegion != null ? this.streamRegion : RegionFile.open(this.file, this.width, this.height, this.depth, this.blocks.getSectionCount()));
+         if (region == null) {
+            if (!full) {
+               throw new IOException("Region file changed on disk, next save will rewrite it");
+            }
+
+            region = RegionFile.create(this.file, this.width, this.height, this.depth, this.blocks.getSectionCount());
+         }
+
+         try {
+            byte[][] encoded = new byte[Math.min(indices.length, 1024)][];
+
+            for(int i0 = 0; i0 < indices.length; i0 += encoded.length) {
+               int offset = i0;
+               int n = Math.min(encoded.length, indices.length - i0);
+               IntStream.range(0, n).parallel().forEach((i) -> {
+                  encoded[i] = RegionFile.encode(sections[offset + i]);
+               });
+
+               for(int i = 0; i < n; ++i) {
+                  bytes += (long)region.writeEncoded(indices[i0 + i], encoded[i]);
+                  encoded[i] = null;
+               }
+
+               if (metrics != null) {
+                  metrics.saveProgress(i0 + n, indices.length);
+               }
+            }
+         } finally {
+            if (region == this.streamRegion) {
+               region.flush();
+            } else {
+               region.close();
+            }
+
+         }
+
+         for(int i = 0; i < indices.length; ++i) {
+            this.evictedSections.remove(indices[i], sections[i]);
+         }
+
+         if (metrics != null) {
+            metrics.saveFinished(indices.length, bytes, System.nanoTime() - start);
+         }
       } catch (Exception e) {
+         this.saveFailed = true;
+         this.keepUnsaved(indices, sections);
+         e.printStackTrace();
+      }
+
+   }
+
+   private synchronized void keepUnsaved(int[] indices, Section[] sections) {
+      for(int i = 0; i < indices.length; ++i) {
+         if (this.blocks.getSection(indices[i]) != null) {
+            this.dirtySections.set(indices[i]);
+         } else {
+            this.evictedSections.putIfAbsent(indices[i], sections[i]);
+         }
+      }
+
+   }
+
+   private void openStreaming() {
+      try {
+         RegionFile region = RegionFile.open(this.file, this.width, this.height, this.depth, this.blocks.getSectionCount());
+         if (region == null) {
+            if (this.file.exists()) {
+               this.load();
+               this.save();
+
+               for(int zs = 0; zs < this.blocks.zSections; ++zs) {
+                  for(int xs = 0; xs < this.blocks.xSections; ++xs) {
+                     this.residentColumns.put(zs * this.blocks.xSections + xs, Boolean.TRUE);
+                  }
+               }
+            } else {
+               RegionFile.create(this.file, this.width, this.height, this.depth, this.blocks.getSectionCount()).close();
+            }
+
+            region = RegionFile.open(this.file, this.width, this.height, this.depth, this.blocks.getSectionCount());
+         }
+
+         this.streamRegion = region;
+         this.regionSynced = true;
+      } catch (IOException e) {
+         e.printStackTrace();
+      }
+
+   }
+
+   public boolean isColumnLoaded(int xs, int zs) {
+      return this.streamRadius == 0 || this.residentColumns.containsKey(zs * this.blocks.xSections + xs);
+   }
+
+   public synchronized void updateStreaming(int x, int z) {
+      if (this.streamRadius != 0) {
+         StreamedColumn arrived;
+         while((arrived = (StreamedColumn)this.arrivedColumns.poll()) != null) {
+            if (this.pendingColumns.contains(arrived.column)) {
+               this.installColumn(arrived);
+            }
+         }
+
+         int cx = Math.max(0, Math.min(this.blocks.xSections - 1, x >> 4));
+         int cz = Math.max(0, Math.min(this.blocks.zSections - 1, z >> 4));
+         int center = cz * this.blocks.xSections + cx;
+         if (!this.residentColumns.containsKey(center)) {
+            this.installColumn(this.readColumn(center));
+         }
+
+         ArrayList<Integer> requested = new ArrayList<>();
+
+         for(int zs = cz - this.streamRadius; zs <= cz + this.streamRadius; ++zs) {
+            for(int xs = cx - this.streamRadius; xs <= cx + this.streamRadius; ++xs) {
+               if (xs >= 0 && zs >= 0 && xs < this.blocks.xSections && zs < this.blocks.zSections) {
+                  int column = zs * this.blocks.xSections + xs;
+                  if (this.residentColumns.get(column) == null && this.pendingColumns.add(column)) {
+                     requested.add(column);
+                  }
+               }
+            }
+         }
+
+         this.touchColumn(center);
+         if (!requested.isEmpty()) {
+            loadExecutor.execute(() -> {
+               for(int i = 0; i < requested.size(); ++i) {
+                  this.arrivedColumns.add(this.readColumn((Integer)requested.get(i)));
+               }
+
+            });
+         }
+
+         Iterator<Integer> it = this.residentColumns.keySet().iterator();
+
+         while(this.residentColumns.size() > this.maxResidentColumns && it.hasNext()) {
+            int column = (Integer)it.next();
+            int xs = column % this.blocks.xSections;
+            int zs = column / this.blocks.xSections;
+            if (Math.abs(xs - cx) > this.streamRadius || Math.abs(zs - cz) > this.streamRadius) {
+               it.remove();
+               this.evictColumn(xs, zs);
+            }
+         }
+
+      }
+   }
+
+   private StreamedColumn readColumn(int column) {
+      int xs = column % this.blocks.xSections;
+      int zs = column / this.blocks.xSections;
+      Section[] sections = new Section[this.blocks.ySections];
+
+      try {
+         RegionFile region = this.streamRegion;
+
+         for(int ys = 0; ys < sections.length; ++ys) {
+            int i = this.blocks.getSectionIndex(xs, ys, zs);
+            Section unsaved = (Section)this.evictedSections.get(i);
+            sections[ys] = unsaved != null ? unsaved.copy() : (region == null ? null : region.readSection(i));
+         }
+      } catch (IOException e) {
          e.printStackTrace();
       }
+
+      for(int ys = 0; ys < sections.length; ++ys) {
+         if (sections[ys] == null) {
+            sections[ys] = this.generateSection(ys);
+         }
+      }
+
+      return new StreamedColumn(column, sections);
+   }
+
+   private void installColumn(StreamedColumn streamed) {
+      this.pendingColumns.remove(streamed.column);
+      if (!this.residentColumns.containsKey(streamed.column)) {
+         int xs = streamed.column % this.blocks.xSections;
+         int zs = streamed.column / this.blocks.xSections;
+
+         for(int ys = 0; ys < streamed.sections.length; ++ys) {
+            int i = this.blocks.getSectionIndex(xs, ys, zs);
+            Section unsaved = (Section)this.evictedSections.get(i);
+            Section section = unsaved != null ? unsaved.copy() : streamed.sections[ys];
+            this.blocks.setSection(i, section);
+            this.occupancy.setSection(xs, ys, zs, section);
+         }
+
+         this.residentColumns.put(streamed.column, Boolean.TRUE);
+         this.calcLightDepths(xs << 4, zs << 4, Math.min(16, this.width - (xs << 4)), Math.min(16, this.height - (zs << 4)));
+         this.relightAround(xs, zs);
+
+         for(int i = 0; i < this.levelListeners.size(); ++i) {
+            ((LevelListener)this.levelListeners.get(i)).columnLoaded(xs, zs);
+         }
+
+      }
+   }
+
+   private void touchColumn(int column) {
+      this.residentColumns.get(column);
+   }
+
+   private void evictColumn(int xs, int zs) {
+      int dirty = 0;
+      int[] indices = new int[this.blocks.ySections];
+      Section[] sections = new Section[this.blocks.ySections];
+
+      for(int ys = 0; ys < this.blocks.ySections; ++ys) {
+         int i = this.blocks.getSectionIndex(xs, ys, zs);
+         if (this.dirtySections.get(i)) {
+            indices[dirty] = i;
+            sections[dirty++] = this.blocks.getSection(i);
+            this.evictedSections.put(i, this.blocks.getSection(i));
+            this.dirtySections.clear(i);
+         }
+
+         this.blocks.setSection(i, null);
+         this.occupancy.setSection(xs, ys, zs, null);
+      }
+
+      if (dirty > 0) {
+         int[] dirtyIndices = Arrays.copyOf(indices, dirty);
+         Section[] dirtySections = (Section[])Arrays.copyOf(sections, dirty);
+         saveExecutor.execute(() -> {
+            this.writeSections(false, dirtyIndices, dirtySections, (SaveMetrics)null);
+         });
+      }
+
+      for(int z = zs << 4; z < Math.min(this.height, zs + 1 << 4); ++z) {
+         for(int x = xs << 4; x < Math.min(this.width, xs + 1 << 4); ++x) {
+            this.lightDepths[x + z * this.width] = 0;
+         }
+      }
+
+      this.relightAround(xs, zs);
+
+      for(int i = 0; i < this.levelListeners.size(); ++i) {
+         ((LevelListener)this.levelListeners.get(i)).columnUnloaded(xs, zs);
+      }
+
+   }
+
+   public void setSaveMetrics(SaveMetrics saveMetrics) {
+      this.saveMetrics = saveMetrics;
+   }
+
+   private void rebuildOccupancy() {
+      for(int ys = 0; ys < this.blocks.ySections; ++ys) {
+         for(int zs = 0; zs < this.blocks.zSections; ++zs) {
+            for(int xs = 0; xs < this.blocks.xSections; ++xs) {
+               this.occupancy.setSection(xs, ys, zs, this.blocks.getSection(this.blocks.getSectionIndex(xs, ys, zs)));
+            }
+         }
+      }
+
    }
 
    public void calcLightDepths(int x0, int y0, int x1, int y1) {
       for(int x = x0; x < x0 + x1; ++x) {
          for(int z = y0; z < y0 + y1; ++z) {
-            int oldDepth = this.lightDepths[x + z * this.width];
+            this.setLightDepth(x, z, Math.max(0, this.occupancy.firstSolidBelow(x, this.depth, z)));
+         }
+      }
 
-            int y;
-            for(y = this.depth - 1; y > 0 && !this.isLightBlocker(x, y, z); --y) {
-            }
+   }
+
+   public void relightAll() {
+      IntStream.range(0, this.height).parallel().forEach((z) -> {
+         for(int x = 0; x < this.width; ++x) {
+            this.lightDepths[x + z * this.width] = Math.max(0, this.occupancy.firstSolidBelow(x, this.depth, z));
+         }
+
+      });
+      if (this.lightEngine != null) {
+         this.lightEngine.relightAll();
+      }
+
+      for(int i = 0; i < this.levelListeners.size(); ++i) {
+         ((LevelListener)this.levelListeners.get(i)).allChanged();
+      }
+
+   }
+
+   public synchronized void setPropagatedLight(boolean propagated) {
+      if (propagated != (this.lightEngine != null)) {
+         this.lightEngine = propagated ? new LightEngine(this, this.levelListeners) : null;
+         this.relightAll();
+      }
+
+   }
 
-            this.lightDepths[x + z * this.width] = y;
-            if (oldDepth != y) {
-               int yl0 = oldDepth < y ? oldDepth : y;
-               int yl1 = oldDepth > y ? oldDepth : y;
+   public boolean isPropagatedLight() {
+      return this.lightEngine != null;
+   }
+
+   private void relightAround(int xs, int zs) {
+      if (this.lightEngine != null) {
+         int xs0 = Math.max(0, xs - 1);
+         int zs0 = Math.max(0, zs - 1);
+         int xs1 = Math.min(this.blocks.xSections, xs + 2);
+         int zs1 = Math.min(this.blocks.zSections, zs + 2);
+         this.lightEngine.relight(xs0, zs0, xs1, zs1);
 
+         for(int x = xs0 << 4; x < Math.min(this.width, xs1 << 4); ++x) {
+            for(int z = zs0 << 4; z < Math.min(this.height, zs1 << 4); ++z) {
                for(int i = 0; i < this.levelListeners.size(); ++i) {
-                  ((LevelListener)this.levelListeners.get(i)).lightColumnChanged(x, z, yl0, yl1);
+                  ((LevelListener)this.levelListeners.get(i)).lightColumnChanged(x, z, 0, this.depth);
+               }
+            }
+         }
+      }
+
+   }
+
+   public int getLightDepth(int x, int z) {
+      return this.lightDepths[x + z * this.width];
+   }
+
+   private void updateLightDepth(int x, int y, int z, boolean solid) {
+      int oldDepth = this.lightDepths[x + z * this.width];
+      if (solid && y > oldDepth) {
+         this.setLightDepth(x, z, y);
+      } else if (!solid && y == oldDepth) {
+         this.setLightDepth(x, z, Math.max(0, this.occupancy.firstSolidBelow(x, y, z)));
+      }
+
+   }
+
+   private void setLightDepth(int x, int z, int y) {
+      int oldDepth = this.lightDepths[x + z * this.width];
+      this.lightDepths[x + z * this.width] = y;
+      if (oldDepth != y) {
+         int yl0 = oldDepth < y ? oldDepth : y;
+         int yl1 = oldDepth > y ? oldDepth : y;
+
+         for(int i = 0; i < this.levelListeners.size(); ++i) {
+            ((LevelListener)this.levelListeners.get(i)).lightColumnChanged(x, z, yl0, yl1);
+         }
+      }
+
+   }
+
+   public synchronized void edit(Consumer<EditBatch> edits) {
+      EditBatch batch = new EditBatch(this.blocks);
+      BitSet touched = batch.getTouchedSections();
+      BitSet columns = new BitSet();
+      long[] stamps = this.lockAllSections();
+      this.blocks.beginBatch();
+
+      try {
+         edits.accept(batch);
+      } finally {
+         for(int i = touched.nextSetBit(0); i >= 0; i = touched.nextSetBit(i + 1)) {
+            int xs = i % this.blocks.xSections;
+            int zs = i / this.blocks.xSections % this.blocks.zSections;
+            int ys = i / (this.blocks.xSections * this.blocks.zSections);
+            this.occupancy.setSection(xs, ys, zs, this.blocks.getSection(i));
+            this.dirtySections.set(i);
+            columns.set(zs * this.blocks.xSections + xs);
+         }
+
+         this.blocks.endBatch();
+         this.unlockAllSections(stamps);
+         this.sectionsEdited(touched, columns);
+      }
+
+   }
+
+   private void sectionsEdited(BitSet touched, BitSet columns) {
+      for(int i = touched.nextSetBit(0); i >= 0; i = touched.nextSetBit(i + 1)) {
+         int xs = i % this.blocks.xSections;
+         int zs = i / this.blocks.xSections % this.blocks.zSections;
+         int ys = i / (this.blocks.xSections * this.blocks.zSections);
+         this.fireRegionChanged(xs << 4, ys << 4, zs << 4, Math.min(this.width, xs + 1 << 4) - 1, Math.min(this.depth, ys + 1 << 4) - 1, Math.min(this.height, zs + 1 << 4) - 1);
+      }
+
+      for(int c = columns.nextSetBit(0); c >= 0; c = columns.nextSetBit(c + 1)) {
+         int xs = c % this.blocks.xSections;
+         int zs = c / this.blocks.xSections;
+         int y0 = this.depth;
+         int y1 = -1;
+
+         for(int x = xs << 4; x < Math.min(this.width, xs + 1 << 4); ++x) {
+            for(int z = zs << 4; z < Math.min(this.height, zs + 1 << 4); ++z) {
+               int oldDepth = this.lightDepths[x + z * this.width];
+               int newDepth = Math.max(0, this.occupancy.firstSolidBelow(x, this.depth, z));
+               if (oldDepth != newDepth) {
+                  this.lightDepths[x + z * this.width] = newDepth;
+                  y0 = Math.min(y0, Math.min(oldDepth, newDepth));
+                  y1 = Math.max(y1, Math.max(oldDepth, newDepth));
+               }
+            }
+         }
+
+         if (y0 <= y1) {
+            this.fireRegionChanged(xs << 4, y0, zs << 4, Math.min(this.width, xs + 1 << 4) - 1, y1, Math.min(this.height, zs + 1 << 4) - 1);
+         }
+      }
+
+      if (this.lightEngine != null && !columns.isEmpty()) {
+         int xs0 = this.blocks.xSections;
+         int zs0 = this.blocks.zSections;
+         int xs1 = -1;
+         int zs1 = -1;
+
+         for(int c = columns.nextSetBit(0); c >= 0; c = columns.nextSetBit(c + 1)) {
+            xs0 = Math.min(xs0, c % this.blocks.xSections);
+            zs0 = Math.min(zs0, c / this.blocks.xSections);
+            xs1 = Math.max(xs1, c % this.blocks.xSections);
+            zs1 = Math.max(zs1, c / this.blocks.xSections);
+         }
+
+         xs0 = Math.max(0, xs0 - 1);
+         zs0 = Math.max(0, zs0 - 1);
+         xs1 = Math.min(this.blocks.xSections, xs1 + 2);
+         zs1 = Math.min(this.blocks.zSections, zs1 + 2);
+         this.lightEngine.relight(xs0, zs0, xs1, zs1);
+         this.fireRegionChanged(xs0 << 4, 0, zs0 << 4, Math.min(this.width, xs1 << 4) - 1, this.depth - 1, Math.min(this.height, zs1 << 4) - 1);
+      }
+
+   }
+
+   private void fireRegionChanged(int x0, int y0, int z0, int x1, int y1, int z1) {
+      for(int i = 0; i < this.levelListeners.size(); ++i) {
+         ((LevelListener)this.levelListeners.get(i)).regionChanged(x0, y0, z0, x1, y1, z1);
+      }
+
+   }
+
+   public synchronized void setConcurrent(boolean concurrent) {
+      if (concurrent && this.sectionLocks == null) {
+         StampedLock[] locks = new StampedLock[64];
+
+         for(int i = 0; i < locks.length; ++i) {
+            locks[i] = new StampedLock();
+         }
+
+         this.sectionLocks = locks;
+      } else if (!concurrent) {
+         this.sectionLocks = null;
+      }
+
+   }
+
+   public boolean isConcurrent() {
+      return this.sectionLocks != null;
+   }
+
+   private long[] lockAllSections() {
+      StampedLock[] locks = this.sectionLocks;
+      if (locks == null) {
+         return null;
+      } else {
+         long[] stamps = new long[locks.length];
+
+         for(int i = 0; i < locks.length; ++i) {
+            stamps[i] = locks[i].writeLock();
+         }
+
+         return stamps;
+      }
+   }
+
+   private void unlockAllSections(long[] stamps) {
+      if (stamps != null) {
+         for(int i = stamps.length - 1; i >= 0; --i) {
+            this.sectionLocks[i].unlockWrite(stamps[i]);
+         }
+      }
+
+   }
+
+   public boolean readSection(int xs, int ys, int zs, byte[] values) {
+      int i = this.blocks.getSectionIndex(xs, ys, zs);
+      StampedLock[] locks = this.sectionLocks;
+      if (locks == null) {
+         Section section = this.blocks.getSection(i);
+         if (section != null) {
+            section.getAll(values);
+         }
+
+         return section != null;
+      } else {
+         StampedLock lock = locks[i & locks.length - 1];
+         long stamp = lock.tryOptimisticRead();
+         if (stamp != 0L) {
+            try {
+               Section section = this.blocks.getSection(i);
+               if (section != null) {
+                  section.getAll(values);
+               }
+
+               if (lock.validate(stamp)) {
+                  return section != null;
                }
+            } catch (RuntimeException e) {
             }
          }
+
+         stamp = lock.readLock();
+
+         try {
+            Section section = this.blocks.getSection(i);
+            if (section != null) {
+               section.getAll(values);
+            }
+
+            return section != null;
+         } finally {
+            lock.unlockRead(stamp);
+         }
       }
+   }
 
+   public int getSectionVersion(int xs, int ys, int zs) {
+      return this.blocks.getVersion(this.blocks.getSectionIndex(xs, ys, zs));
+   }
+
+   public SectionSnapshot snapshotSection(int xs, int ys, int zs) {
+      StampedLock[] locks = this.sectionLocks;
+      if (locks == null) {
+         return this.readSnapshot(xs, ys, zs);
+      } else {
+         long stripes = 1L << (this.blocks.getSectionIndex(xs, ys, zs) & locks.length - 1);
+
+         for(int f = 0; f < 6; ++f) {
+            int nx = xs + NEIGHBOUR_X[f];
+            int ny = ys + NEIGHBOUR_Y[f];
+            int nz = zs + NEIGHBOUR_Z[f];
+            if (nx >= 0 && ny >= 0 && nz >= 0 && nx < this.blocks.xSections && ny < this.blocks.ySections && nz < this.blocks.zSections) {
+               stripes |= 1L << (this.blocks.getSectionIndex(nx, ny, nz) & locks.length - 1);
+            }
+         }
+
+         long[] stamps = new long[locks.length];
+
+         for(int s = 0; s < locks.length; ++s) {
+            if ((stripes >>> s & 1L) != 0L) {
+               stamps[s] = locks[s].readLock();
+            }
+         }
+
+         try {
+            return this.readSnapshot(xs, ys, zs);
+         } finally {
+            for(int s = locks.length - 1; s >= 0; --s) {
+               if ((stripes >>> s & 1L) != 0L) {
+                  locks[s].unlockRead(stamps[s]);
+               }
+            }
+
+         }
+      }
+   }
+
+   private SectionSnapshot readSnapshot(int xs, int ys, int zs) {
+      int i = this.blocks.getSectionIndex(xs, ys, zs);
+      int version = this.blocks.getVersion(i);
+      Section section = this.blocks.share(i);
+      if (section == null) {
+         return null;
+      } else {
+         Section[] neighbours = new Section[6];
+         int[] neighbourVersions = new int[6];
+
+         for(int f = 0; f < 6; ++f) {
+            int nx = xs + NEIGHBOUR_X[f];
+            int ny = ys + NEIGHBOUR_Y[f];
+            int nz = zs + NEIGHBOUR_Z[f];
+            if (nx >= 0 && ny >= 0 && nz >= 0 && nx < this.blocks.xSections && ny < this.blocks.ySections && nz < this.blocks.zSections) {
+               int n = this.blocks.getSectionIndex(nx, ny, nz);
+               neighbourVersions[f] = this.blocks.getVersion(n);
+               neighbours[f] = this.blocks.share(n);
+            }
+         }
+
+         return new SectionSnapshot(xs, ys, zs, version, section, neighbourVersions, neighbours);
+      }
    }
 
    public void addListener(LevelListener levelListener) {
@@ -97,15 +793,60 @@ public class Level {
    }
 
    public boolean isTile(int x, int y, int z) {
-      if (x >= 0 && y >= 0 && z >= 0 && x < this.width && y < this.depth && z < this.height) {
-         return this.blocks[(y * this.height + z) * this.width + x] == 1;
+      StampedLock[] locks = this.sectionLocks;
+      if (locks == null) {
+         return this.isSolidTile(x, y, z);
+      } else if (x >= 0 && y >= 0 && z >= 0 && x < this.width && y < this.depth && z < this.height) {
+         StampedLock lock = locks[this.blocks.getSectionIndex(x >> 4, y >> 4, z >> 4) & locks.length - 1];
+         long stamp = lock.tryOptimisticRead();
+         if (stamp != 0L) {
+            try {
+               byte value = this.blocks.get(x, y, z);
+               if (lock.validate(stamp)) {
+                  return value == 1;
+               }
+            } catch (RuntimeException e) {
+            }
+         }
+
+         stamp = lock.readLock();
+
+         try {
+            return this.blocks.get(x, y, z) == 1;
+         } finally {
+            lock.unlockRead(stamp);
+         }
       } else {
          return false;
       }
    }
 
    public boolean isSolidTile(int x, int y, int z) {
-      return this.isTile(x, y, z);
+      return x >= 0 && y >= 0 && z >= 0 && x < this.width && y < this.depth && z < this.height && this.occupancy.get(x, y, z);
+   }
+
+   public boolean anySolidInRow(int x0, int x1, int y, int z) {
+      if (y >= 0 && z >= 0 && y < this.depth && z < this.height) {
+         return this.occupancy.anySolid(x0 < 0 ? 0 : x0, x1 > this.width ? this.width : x1, y, z);
+      } else {
+         return false;
+      }
+   }
+
+   public int getFirstSolidBelow(int x, int y, int z) {
+      if (x >= 0 && z >= 0 && x < this.width && z < this.height) {
+         return this.occupancy.firstSolidBelow(x, y > this.depth ? this.depth : y, z);
+      } else {
+         return -1;
+      }
+   }
+
+   public long getSolidWord(int wx, int y, int z) {
+      if (wx >= 0 && y >= 0 && z >= 0 && wx << 6 < this.width && y < this.depth && z < this.height) {
+         return this.occupancy.getWord(wx, y, z);
+      } else {
+         return 0L;
+      }
    }
 
    public boolean isLightBlocker(int x, int y, int z) {
@@ -144,11 +885,13 @@ public class Level {
          z1 = this.height;
       }
 
-      for(int x = x0; x < x1; ++x) {
-         for(int y = y0; y < y1; ++y) {
-            for(int z = z0; z < z1; ++z) {
-               if (this.isSolidTile(x, y, z)) {
-                  aABBs.add(new AABB((float)x, (float)y, (float)z, (float)(x + 1), (float)(y + 1), (float)(z + 1)));
+      for(int y = y0; y < y1; ++y) {
+         for(int z = z0; z < z1; ++z) {
+            if (this.occupancy.anySolid(x0, x1, y, z)) {
+               for(int x = x0; x < x1; ++x) {
+                  if (this.occupancy.get(x, y, z)) {
+                     aABBs.add(new AABB((float)x, (float)y, (float)z, (float)(x + 1), (float)(y + 1), (float)(z + 1)));
+                  }
                }
             }
          }
@@ -157,20 +900,97 @@ public class Level {
       return aABBs;
    }
 
+   public boolean clip(float x, float y, float z, float xd, float yd, float zd, AABB bounds, float reach, HitResult hitResult) {
+      if (xd == 0.0F && yd == 0.0F && zd == 0.0F) {
+         return false;
+      }
+
+      int x0 = (int)(bounds.x0 - reach);
+      int y0 = (int)(bounds.y0 - reach);
+      int z0 = (int)(bounds.z0 - reach);
+      int x1 = (int)(bounds.x1 + reach + 1.0F);
+      int y1 = (int)(bounds.y1 + reach + 1.0F);
+      int z1 = (int)(bounds.z1 + reach + 1.0F);
+      int xt = (int)Math.floor((double)x);
+      int yt = (int)Math.floor((double)y);
+      int zt = (int)Math.floor((double)z);
+      int xStep = xd > 0.0F ? 1 : (xd < 0.0F ? -1 : 0);
+      int yStep = yd > 0.0F ? 1 : (yd < 0.0F ? -1 : 0);
+      int zStep = zd > 0.0F ? 1 : (zd < 0.0F ? -1 : 0);
+      float xDelta = xStep == 0 ? Float.MAX_VALUE : Math.abs(1.0F / xd);
+      float yDelta = yStep == 0 ? Float.MAX_VALUE : Math.abs(1.0F / yd);
+      float zDelta = zStep == 0 ? Float.MAX_VALUE : Math.abs(1.0F / zd);
+      float xMax = xStep == 0 ? Float.MAX_VALUE : (xStep > 0 ? (float)(xt + 1) - x : x - (float)xt) * xDelta;
+      float yMax = yStep == 0 ? Float.MAX_VALUE : (yStep > 0 ? (float)(yt + 1) - y : y - (float)yt) * yDelta;
+      float zMax = zStep == 0 ? Float.MAX_VALUE : (zStep > 0 ? (float)(zt + 1) - z : z - (float)zt) * zDelta;
+      int face = -1;
+
+      while(xt >= x0 && yt >= y0 && zt >= z0 && xt < x1 && yt < y1 && zt < z1) {
+         if (face >= 0 && this.isSolidTile(xt, yt, zt)) {
+            hitResult.x = xt;
+            hitResult.y = yt;
+            hitResult.z = zt;
+            hitResult.o = 0;
+            hitResult.f = face;
+            return true;
+         }
+
+         if (xMax < yMax && xMax < zMax) {
+            xt += xStep;
+            xMax += xDelta;
+            face = xStep > 0 ? 4 : 5;
+         } else if (yMax < zMax) {
+            yt += yStep;
+            yMax += yDelta;
+            face = yStep > 0 ? 0 : 1;
+         } else {
+            zt += zStep;
+            zMax += zDelta;
+            face = zStep > 0 ? 2 : 3;
+         }
+      }
+
+      return false;
+   }
+
    public float getBrightness(int x, int y, int z) {
       float dark = 0.8F;
       float light = 1.0F;
       if (x >= 0 && y >= 0 && z >= 0 && x < this.width && y < this.depth && z < this.height) {
-         return y < this.lightDepths[x + z * this.width] ? dark : light;
+         if (this.lightEngine != null) {
+            return dark + (light - dark) * (float)this.lightEngine.getLight(x, y, z) / 15.0F;
+         } else {
+            return y < this.lightDepths[x + z * this.width] ? dark : light;
+         }
       } else {
          return light;
       }
    }
 
-   public void setTile(int x, int y, int z, int type) {
-      if (x >= 0 && y >= 0 && z >= 0 && x < this.width && y < this.depth && z < this.height) {
-         this.blocks[(y * this.height + z) * this.width + x] = (byte)type;
-         this.calcLightDepths(x, z, 1, 1);
+   public synchronized void setTile(int x, int y, int z, int type) {
+      if (x >= 0 && y >= 0 && z >= 0 && x < this.width && y < this.depth && z < this.height && this.blocks.getSection(this.blocks.getSectionIndex(x >> 4, y >> 4, z >> 4)) != null) {
+         StampedLock[] locks = this.sectionLocks;
+         if (locks == null) {
+            this.blocks.set(x, y, z, (byte)type);
+            this.occupancy.set(x, y, z, type == 1);
+         } else {
+            StampedLock lock = locks[this.blocks.getSectionIndex(x >> 4, y >> 4, z >> 4) & locks.length - 1];
+            long stamp = lock.writeLock();
+
+            try {
+               this.blocks.set(x, y, z, (byte)type);
+               this.occupancy.set(x, y, z, type == 1);
+            } finally {
+               lock.unlockWrite(stamp);
+            }
+         }
+
+         this.dirtySections.set(this.blocks.getSectionIndex(x >> 4, y >> 4, z >> 4));
+         int oldDepth = this.lightDepths[x + z * this.width];
+         this.updateLightDepth(x, y, z, type == 1);
+         if (this.lightEngine != null) {
+            this.lightEngine.update(x, y, z, oldDepth, this.lightDepths[x + z * this.width]);
+         }
 
          for(int i = 0; i < this.levelListeners.size(); ++i) {
             ((LevelListener)this.levelListeners.get(i)).tileChanged(x, y, z);
@@ -178,4 +998,14 @@ public class Level {
 
       }
    }
+
+   private static class StreamedColumn {
+      public final int column;
+      public final Section[] sections;
+
+      public StreamedColumn(int column, Section[] sections) {
+         this.column = column;
+         this.sections = sections;
+      }
+   }
 }
@@ -6,4 +6,10 @@ public interface LevelListener {
    void lightColumnChanged(int var1, int var2, int var3, int var4);
 
    void allChanged();
+
+   void regionChanged(int var1, int var2, int var3, int var4, int var5, int var6);
+
+   void columnLoaded(int var1, int var2);
+
+   void columnUnloaded(int var1, int var2);
 }
@@ -3,6 +3,7 @@ package com.mojang.rubydung.level;
 import com.mojang.rubydung.HitResult;
 import com.mojang.rubydung.Player;
 import com.mojang.rubydung.phys.AABB;
+import java.util.ArrayList;
 import org.lwjgl.opengl.GL11;
 
 public class LevelRenderer implements LevelListener {
@@ -14,13 +15,19 @@ public class LevelRenderer implements LevelListener {
    private int yChunks;
    private int zChunks;
    Tesselator t = new Tesselator();
+   private RebuildScheduler rebuildScheduler = new RebuildScheduler();
+   private ArrayList<Chunk> visibleChunks = new ArrayList<>();
+   private OcclusionCuller occlusionCuller;
+   public boolean occlusionCulling = true;
+   public long uploadBudgetNanos = 4000000L;
+   public long rebuildBudgetNanos = 2000000L;
 
    public LevelRenderer(Level level) {
       this.level = level;
       level.addListener(this);
-      this.xChunks = level.width / 16;
-      this.yChunks = level.depth / 16;
-      this.zChunks = level.height / 16;
+      this.xChunks = (level.width + 15) / 16;
+      this.yChunks = (level.depth + 15) / 16;
+      this.zChunks = (level.height + 15) / 16;
       this.chunks = new Chunk[this.xChunks * this.yChunks * this.zChunks];
 
       for(int x = 0; x < this.xChunks; ++x) {
@@ -45,21 +52,74 @@ public class LevelRenderer implements LevelListener {
                }
 
                this.chunks[(x + y * this.xChunks) * this.zChunks + z] = new Chunk(level, x0, y0, z0, x1, y1, z1);
+               this.chunks[(x + y * this.xChunks) * this.zChunks + z].attached = level.isColumnLoaded(x, z);
+               this.rebuildScheduler.add(this.chunks[(x + y * this.xChunks) * this.zChunks + z]);
             }
          }
       }
 
+      this.occlusionCuller = new OcclusionCuller(this.chunks, this.xChunks, this.yChunks, this.zChunks);
    }
 
-   public void render(Player player, int layer) {
-      Chunk.rebuiltThisFrame = 0;
-      Frustum frustum = Frustum.getFrustum();
+   public void render(Player player, Frustum frustum, int layer) {
+      if (layer == 0) {
+         Chunk.rebuiltThisFrame = 0;
+         this.rebuildScheduler.upload(this.uploadBudgetNanos);
+         this.rebuildScheduler.rebuild(player, frustum, this.rebuildBudgetNanos);
+         this.visibleChunks.clear();
+         int xc = (int)Math.floor((double)player.x) >> 4;
+         int yc = (int)Math.floor((double)player.y) >> 4;
+         int zc = (int)Math.floor((double)player.z) >> 4;
+         if (this.occlusionCulling && this.occlusionCuller.canCull(xc, yc, zc)) {
+            this.occlusionCuller.cull(frustum, xc, yc, zc, this.visibleChunks);
+         } else {
+            this.cull(frustum, 0, 0, this.xChunks, this.zChunks, false);
+         }
+      }
+
+      for(int i = 0; i < this.visibleChunks.size(); ++i) {
+         ((Chunk)this.visibleChunks.get(i)).render(layer);
+      }
+
+   }
+
+   private void cull(Frustum frustum, int xc0, int zc0, int xc1, int zc1, boolean inside) {
+      if (!inside) {
+         float x0 = (float)(xc0 * 16);
+         float z0 = (float)(zc0 * 16);
+         float x1 = (float)Math.min(xc1 * 16, this.level.width);
+         float z1 = (float)Math.min(zc1 * 16, this.level.height);
+         if (!frustum.cubeInFrustum(x0, 0.0F, z0, x1, (float)this.level.depth, z1)) {
+            return;
+         }
+
+         inside = frustum.cubeFullyInFrustum(x0, 0.0F, z0, x1, (float)this.level.depth, z1);
+      }
+
+      if (xc1 - xc0 == 1 && zc1 - zc0 == 1) {
+         for(int y = 0; y < this.yChunks; ++y) {
+            Chunk chunk = this.chunks[(xc0 + y * this.xChunks) * this.zChunks + zc0];
+            if (chunk.attached && !chunk.isEmpty() && (inside || frustum.cubeInFrustum(chunk.aabb))) {
+               this.visibleChunks.add(chunk);
+            }
+         }
+      } else {
+         int xm = xc1 - xc0 > 1 ? (xc0 + xc1) / 2 : xc1;
+         int zm = zc1 - zc0 > 1 ? (zc0 + zc1) / 2 : zc1;
+         this.cull(frustum, xc0, zc0, xm, zm, inside);
+         if (xm < xc1) {
+            this.cull(frustum, xm, zc0, xc1, zm, inside);
+         }
+
+         if (zm < zc1) {
+            this.cull(frustum, xc0, zm, xm, zc1, inside);
+         }
 
-      for(int i = 0; i < this.chunks.length; ++i) {
-         if (frustum.cubeInFrustum(this.chunks[i].aabb)) {
-            this.chunks[i].render(layer);
+         if (xm < xc1 && zm < zc1) {
+            this.cull(frustum, xm, zm, xc1, zc1, inside);
          }
       }
+
    }
 
    public void pick(Player player) {
@@ -117,6 +177,10 @@ public class LevelRenderer implements LevelListener {
    }
 
    public void setDirty(int x0, int y0, int z0, int x1, int y1, int z1) {
+      this.setDirty(x0, y0, z0, x1, y1, z1, false);
+   }
+
+   private void setDirty(int x0, int y0, int z0, int x1, int y1, int z1, boolean tilesChanged) {
       x0 /= 16;
       x1 /= 16;
       y0 /= 16;
@@ -150,7 +214,13 @@ public class LevelRenderer implements LevelListener {
       for(int x = x0; x <= x1; ++x) {
          for(int y = y0; y <= y1; ++y) {
             for(int z = z0; z <= z1; ++z) {
-               this.chunks[(x + y * this.xChunks) * this.zChunks + z].setDirty();
+               Chunk chunk = this.chunks[(x + y * this.xChunks) * this.zChunks + z];
+               chunk.setDirty();
+               if (tilesChanged) {
+                  chunk.updateCounts();
+               }
+
+               this.rebuildScheduler.add(chunk);
             }
          }
       }
@@ -158,14 +228,36 @@ public class LevelRenderer implements LevelListener {
    }
 
    public void tileChanged(int x, int y, int z) {
-      this.setDirty(x - 1, y - 1, z - 1, x + 1, y + 1, z + 1);
+      this.setDirty(x - 1, y - 1, z - 1, x + 1, y + 1, z + 1, true);
    }
 
    public void lightColumnChanged(int x, int z, int y0, int y1) {
       this.setDirty(x - 1, y0 - 1, z - 1, x + 1, y1 + 1, z + 1);
    }
 
+   public void regionChanged(int x0, int y0, int z0, int x1, int y1, int z1) {
+      this.setDirty(x0 - 1, y0 - 1, z0 - 1, x1 + 1, y1 + 1, z1 + 1, true);
+   }
+
    public void allChanged() {
-      this.setDirty(0, 0, 0, this.level.width, this.level.depth, this.level.height);
+      this.setDirty(0, 0, 0, this.level.width, this.level.depth, this.level.height, true);
+   }
+
+   public void columnLoaded(int xs, int zs) {
+      this.setColumnAttached(xs, zs, true);
+   }
+
+   public void columnUnloaded(int xs, int zs) {
+      this.setColumnAttached(xs, zs, false);
+   }
+
+   private void setColumnAttached(int xs, int zs, boolean attached) {
+      if (xs >= 0 && zs >= 0 && xs < this.xChunks && zs < this.zChunks) {
+         for(int y = 0; y < this.yChunks; ++y) {
+            this.chunks[(xs + y * this.xChunks) * this.zChunks + zs].attached = attached;
+         }
+      }
+
+      this.setDirty((xs << 4) - 1, 0, (zs << 4) - 1, (xs + 1 << 4), this.level.depth, (zs + 1 << 4), true);
    }
 }
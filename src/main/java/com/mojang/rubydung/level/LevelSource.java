@@ -0,0 +1,7 @@
+package com.mojang.rubydung.level;
+
+public interface LevelSource {
+   boolean isSolidTile(int var1, int var2, int var3);
+
+   float getBrightness(int var1, int var2, int var3);
+}
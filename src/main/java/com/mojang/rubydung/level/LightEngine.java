@@ -0,0 +1,352 @@
+package com.mojang.rubydung.level;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+public class LightEngine {
+   public static final int MAX_LIGHT = 15;
+   private static final int[] DX = new int[]{0, 0, 0, 0, -1, 1};
+   private static final int[] DY = new int[]{-1, 1, 0, 0, 0, 0};
+   private static final int[] DZ = new int[]{0, 0, -1, 1, 0, 0};
+   private final Level level;
+   private final List<LevelListener> levelListeners;
+   private final int xSections;
+   private final int ySections;
+   private final int zSections;
+   private final int xBits;
+   private final int zBits;
+   private byte[][] light;
+   private IntQueue increaseQueue = new IntQueue();
+   private IntQueue decreaseQueue = new IntQueue();
+   private int x0;
+   private int y0;
+   private int z0;
+   private int x1;
+   private int y1;
+   private int z1;
+
+   public LightEngine(Level level, List<LevelListener> levelListeners) {
+      this.level = level;
+      this.levelListeners = levelListeners;
+      this.xSections = (level.width + 15) >> 4;
+      this.ySections = (level.depth + 15) >> 4;
+      this.zSections = (level.height + 15) >> 4;
+      this.xBits = 32 - Integer.numberOfLeadingZeros(level.width - 1);
+      this.zBits = 32 - Integer.numberOfLeadingZeros(level.height - 1);
+      if (this.xBits + this.zBits + 32 - Integer.numberOfLeadingZeros(level.depth - 1) > 32) {
+         throw new IllegalArgumentException("Level too large for propagated light " + level.width + "x" + level.height + "x" + level.depth);
+      }
+
+      this.light = new byte[(int)((long)this.xSections * (long)this.ySections * (long)this.zSections)][];
+   }
+
+   private int sectionIndex(int x, int y, int z) {
+      return ((y >> 4) * this.zSections + (z >> 4)) * this.xSections + (x >> 4);
+   }
+
+   private int pack(int x, int y, int z) {
+      return (y << this.zBits | z) << this.xBits | x;
+   }
+
+   private boolean isLoaded(int x, int y, int z) {
+      return x >= 0 && y >= 0 && z >= 0 && x < this.level.width && y < this.level.depth && z < this.level.height && this.level.isColumnLoaded(x >> 4, z >> 4);
+   }
+
+   private boolean isSky(int x, int y, int z) {
+      return y >= this.level.getLightDepth(x, z) && !this.level.isSolidTile(x, y, z);
+   }
+
+   public int getLight(int x, int y, int z) {
+      byte[] data = this.light[this.sectionIndex(x, y, z)];
+      if (data == null) {
+         return 0;
+      } else {
+         int i = (y & 15) << 8 | (z & 15) << 4 | x & 15;
+         return data[i >> 1] >> ((i & 1) << 2) & 15;
+      }
+   }
+
+   private void setLight(int x, int y, int z, int value) {
+      int s = this.sectionIndex(x, y, z);
+      byte[] data = this.light[s];
+      if (data == null) {
+         if (value == 0) {
+            return;
+         }
+
+         data = this.light[s] = new byte[2048];
+      }
+
+      int i = (y & 15) << 8 | (z & 15) << 4 | x & 15;
+      int shift = (i & 1) << 2;
+      data[i >> 1] = (byte)(data[i >> 1] & ~(15 << shift) | value << shift);
+      if (x < this.x0) {
+         this.x0 = x;
+      }
+
+      if (y < this.y0) {
+         this.y0 = y;
+      }
+
+      if (z < this.z0) {
+         this.z0 = z;
+      }
+
+      if (x > this.x1) {
+         this.x1 = x;
+      }
+
+      if (y > this.y1) {
+         this.y1 = y;
+      }
+
+      if (z > this.z1) {
+         this.z1 = z;
+      }
+
+   }
+
+   public void relightAll() {
+      this.relight(0, 0, this.xSections, this.zSections);
+   }
+
+   public void relight(int xs0, int zs0, int xs1, int zs1) {
+      int columns = (xs1 - xs0) * (zs1 - zs0);
+      IntStream.range(0, columns * this.ySections).parallel().forEach((k) -> {
+         int xs = xs0 + k % (xs1 - xs0);
+         int zs = zs0 + k / (xs1 - xs0) % (zs1 - zs0);
+         int ys = k / columns;
+         this.light[(ys * this.zSections + zs) * this.xSections + xs] = this.computeSection(xs, ys, zs);
+      });
+
+      for(int ys = 0; ys < this.ySections; ++ys) {
+         for(int zs = zs0; zs < zs1; ++zs) {
+            for(int xs = xs0; xs < xs1; ++xs) {
+               this.seedBorders(xs, ys, zs);
+            }
+         }
+      }
+
+      this.propagate();
+   }
+
+   private byte[] computeSection(int xs, int ys, int zs) {
+      int bx = xs << 4;
+      int by = ys << 4;
+      int bz = zs << 4;
+      if (!this.level.isColumnLoaded(xs, zs)) {
+         return null;
+      } else {
+         byte[] data = new byte[2048];
+         IntQueue queue = new IntQueue();
+
+         for(int i = 0; i < 4096; ++i) {
+            int x = bx + (i & 15);
+            int y = by + (i >> 8);
+            int z = bz + (i >> 4 & 15);
+            if (x < this.level.width && y < this.level.depth && z < this.level.height && this.isSky(x, y, z)) {
+               data[i >> 1] = (byte)(data[i >> 1] | MAX_LIGHT << ((i & 1) << 2));
+               queue.push(i);
+            }
+         }
+
+         if (queue.isEmpty()) {
+            return null;
+         } else {
+            while(!queue.isEmpty()) {
+               int i = queue.pop();
+               int value = (data[i >> 1] >> ((i & 1) << 2) & 15) - 1;
+               if (value > 0) {
+                  for(int f = 0; f < 6; ++f) {
+                     int lx = (i & 15) + DX[f];
+                     int ly = (i >> 8) + DY[f];
+                     int lz = (i >> 4 & 15) + DZ[f];
+                     if (lx >= 0 && ly >= 0 && lz >= 0 && lx < 16 && ly < 16 && lz < 16 && bx + lx < this.level.width && by + ly < this.level.depth && bz + lz < this.level.height && !this.level.isSolidTile(bx + lx, by + ly, bz + lz)) {
+                        int n = ly << 8 | lz << 4 | lx;
+                        int shift = (n & 1) << 2;
+                        if ((data[n >> 1] >> shift & 15) < value) {
+                           data[n >> 1] = (byte)(data[n >> 1] & ~(15 << shift) | value << shift);
+                           queue.push(n);
+                        }
+                     }
+                  }
+               }
+            }
+
+            return data;
+         }
+      }
+   }
+
+   private void seedBorders(int xs, int ys, int zs) {
+      for(int f = 0; f < 6; ++f) {
+         for(int a = 0; a < 16; ++a) {
+            for(int b = 0; b < 16; ++b) {
+               int x = (xs << 4) + (DX[f] == 0 ? a : (DX[f] < 0 ? 0 : 15));
+               int y = (ys << 4) + (DY[f] == 0 ? (DX[f] == 0 ? b : a) : (DY[f] < 0 ? 0 : 15));
+               int z = (zs << 4) + (DZ[f] == 0 ? b : (DZ[f] < 0 ? 0 : 15));
+               if (this.isLoaded(x, y, z) && this.isLoaded(x + DX[f], y + DY[f], z + DZ[f])) {
+                  if (this.getLight(x, y, z) > 1) {
+                     this.increaseQueue.push(this.pack(x, y, z));
+                  }
+
+                  if (this.getLight(x + DX[f], y + DY[f], z + DZ[f]) > 1) {
+                     this.increaseQueue.push(this.pack(x + DX[f], y + DY[f], z + DZ[f]));
+                  }
+               }
+            }
+         }
+      }
+
+   }
+
+   public void update(int x, int y, int z, int oldDepth, int newDepth) {
+      this.x0 = this.y0 = this.z0 = Integer.MAX_VALUE;
+      this.x1 = this.y1 = this.z1 = Integer.MIN_VALUE;
+      if (this.level.isSolidTile(x, y, z)) {
+         this.darkenAt(x, y, z);
+
+         for(int yy = oldDepth; yy < newDepth; ++yy) {
+            if (!this.level.isSolidTile(x, yy, z)) {
+               this.darkenAt(x, yy, z);
+            }
+         }
+
+         this.darken();
+      } else {
+         for(int yy = newDepth; yy <= oldDepth && yy < this.level.depth; ++yy) {
+            if (!this.level.isSolidTile(x, yy, z)) {
+               this.setLight(x, yy, z, MAX_LIGHT);
+               this.increaseQueue.push(this.pack(x, yy, z));
+            }
+         }
+
+         for(int f = 0; f < 6; ++f) {
+            if (this.isLoaded(x + DX[f], y + DY[f], z + DZ[f])) {
+               this.increaseQueue.push(this.pack(x + DX[f], y + DY[f], z + DZ[f]));
+            }
+         }
+      }
+
+      this.propagate();
+      if (this.x0 <= this.x1) {
+         for(int xx = this.x0; xx <= this.x1; ++xx) {
+            for(int zz = this.z0; zz <= this.z1; ++zz) {
+               for(int i = 0; i < this.levelListeners.size(); ++i) {
+                  ((LevelListener)this.levelListeners.get(i)).lightColumnChanged(xx, zz, this.y0, this.y1);
+               }
+            }
+         }
+      }
+
+   }
+
+   private void darkenAt(int x, int y, int z) {
+      int old = this.getLight(x, y, z);
+      if (old > 0) {
+         this.setLight(x, y, z, 0);
+         this.decreaseQueue.push(this.pack(x, y, z));
+         this.decreaseQueue.push(old);
+      }
+
+   }
+
+   private void darken() {
+      int xMask = (1 << this.xBits) - 1;
+      int zMask = (1 << this.zBits) - 1;
+
+      while(!this.decreaseQueue.isEmpty()) {
+         int pos = this.decreaseQueue.pop();
+         int value = this.decreaseQueue.pop();
+         int x = pos & xMask;
+         int y = pos >>> this.xBits + this.zBits;
+         int z = pos >>> this.xBits & zMask;
+
+         for(int f = 0; f < 6; ++f) {
+            int nx = x + DX[f];
+            int ny = y + DY[f];
+            int nz = z + DZ[f];
+            if (this.isLoaded(nx, ny, nz)) {
+               int n = this.getLight(nx, ny, nz);
+               if (n != 0) {
+                  if (n < value) {
+                     this.setLight(nx, ny, nz, 0);
+                     this.decreaseQueue.push(this.pack(nx, ny, nz));
+                     this.decreaseQueue.push(n);
+                  } else {
+                     this.increaseQueue.push(this.pack(nx, ny, nz));
+                  }
+               }
+            }
+         }
+      }
+
+   }
+
+   private void propagate() {
+      int xMask = (1 << this.xBits) - 1;
+      int zMask = (1 << this.zBits) - 1;
+
+      while(!this.increaseQueue.isEmpty()) {
+         int pos = this.increaseQueue.pop();
+         int x = pos & xMask;
+         int y = pos >>> this.xBits + this.zBits;
+         int z = pos >>> this.xBits & zMask;
+         int value = this.getLight(x, y, z) - 1;
+         if (value > 0) {
+            for(int f = 0; f < 6; ++f) {
+               int nx = x + DX[f];
+               int ny = y + DY[f];
+               int nz = z + DZ[f];
+               if (this.isLoaded(nx, ny, nz) && !this.level.isSolidTile(nx, ny, nz) && this.getLight(nx, ny, nz) < value) {
+                  this.setLight(nx, ny, nz, value);
+                  this.increaseQueue.push(this.pack(nx, ny, nz));
+               }
+            }
+         }
+      }
+
+      this.increaseQueue.clear();
+   }
+
+   private static class IntQueue {
+      private int[] data = new int[1024];
+      private int head = 0;
+      private int tail = 0;
+
+      public boolean isEmpty() {
+         return this.head == this.tail;
+      }
+
+      public void clear() {
+         this.head = this.tail = 0;
+      }
+
+      public int pop() {
+         int value = this.data[this.head++];
+         if (this.head == this.tail) {
+            this.head = this.tail = 0;
+         }
+
+         return value;
+      }
+
+      public void push(int value) {
+         if (this.tail == this.data.length) {
+            if (this.head > this.data.length / 2) {
+               System.arraycopy(this.data, this.head, this.data, 0, this.tail - this.head);
+               this.tail -= this.head;
+               this.head = 0;
+            } else {
+               int[] grown = new int[this.data.length * 2];
+               System.arraycopy(this.data, this.head, grown, 0, this.tail - this.head);
+               this.tail -= this.head;
+               this.head = 0;
+               this.data = grown;
+            }
+         }
+
+         this.data[this.tail++] = value;
+      }
+   }
+}
@@ -0,0 +1,82 @@
+package com.mojang.rubydung.level;
+
+import java.util.List;
+
+public class OcclusionCuller {
+   private static final int[] DX = new int[]{0, 0, 0, 0, -1, 1};
+   private static final int[] DY = new int[]{-1, 1, 0, 0, 0, 0};
+   private static final int[] DZ = new int[]{0, 0, -1, 1, 0, 0};
+   private final Chunk[] chunks;
+   private final int xChunks;
+   private final int yChunks;
+   private final int zChunks;
+   private final int[] visitFrames;
+   private final int[] queue;
+   private int frame = 0;
+
+   public OcclusionCuller(Chunk[] chunks, int xChunks, int yChunks, int zChunks) {
+      this.chunks = chunks;
+      this.xChunks = xChunks;
+      this.yChunks = yChunks;
+      this.zChunks = zChunks;
+      this.visitFrames = new int[chunks.length];
+      this.queue = new int[chunks.length];
+   }
+
+   public boolean canCull(int xc, int yc, int zc) {
+      return yc >= this.yChunks || xc >= 0 && yc >= 0 && zc >= 0 && xc < this.xChunks && zc < this.zChunks;
+   }
+
+   public void cull(Frustum frustum, int xc, int yc, int zc, List<Chunk> visibleChunks) {
+      int frame = ++this.frame;
+      int head = 0;
+      int tail = 0;
+      if (yc < this.yChunks) {
+         int i = (xc + yc * this.xChunks) * this.zChunks + zc;
+         this.visitFrames[i] = frame;
+         this.queue[tail++] = i << 10 | 6;
+      } else {
+         for(int x = 0; x < this.xChunks; ++x) {
+            for(int z = 0; z < this.zChunks; ++z) {
+               int i = (x + (this.yChunks - 1) * this.xChunks) * this.zChunks + z;
+               if (frustum.cubeInFrustum(this.chunks[i].aabb)) {
+                  this.visitFrames[i] = frame;
+                  this.queue[tail++] = i << 10 | 1 << 4 | 1;
+               }
+            }
+         }
+      }
+
+      while(head < tail) {
+         int entry = this.queue[head++];
+         int i = entry >>> 10;
+         int directions = entry >> 4 & 63;
+         int from = entry & 15;
+         Chunk chunk = this.chunks[i];
+         if (chunk.attached && !chunk.isEmpty()) {
+            visibleChunks.add(chunk);
+         }
+
+         long visibility = chunk.attached ? chunk.visibility : VisibilityGraph.ALL;
+         int z = i % this.zChunks;
+         int x = i / this.zChunks % this.xChunks;
+         int y = i / this.zChunks / this.xChunks;
+
+         for(int f = 0; f < 6; ++f) {
+            if ((directions >> (f ^ 1) & 1) == 0 && (from == 6 || VisibilityGraph.isConnected(visibility, from, f))) {
+               int nx = x + DX[f];
+               int ny = y + DY[f];
+               int nz = z + DZ[f];
+               if (nx >= 0 && ny >= 0 && nz >= 0 && nx < this.xChunks && ny < this.yChunks && nz < this.zChunks) {
+                  int n = (nx + ny * this.xChunks) * this.zChunks + nz;
+                  if (this.visitFrames[n] != frame && frustum.cubeInFrustum(this.chunks[n].aabb)) {
+                     this.visitFrames[n] = frame;
+                     this.queue[tail++] = n << 10 | (directions | 1 << f) << 4 | f ^ 1;
+                  }
+               }
+            }
+         }
+      }
+
+   }
+}
@@ -0,0 +1,126 @@
+package com.mojang.rubydung.level;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class OccupancyIndex {
+   public final int width;
+   public final int height;
+   public final int depth;
+   private final int xPages;
+   private final int zPages;
+   private final AtomicReferenceArray<long[]> pages;
+
+   public OccupancyIndex(int w, int h, int d) {
+      this.width = w;
+      this.height = h;
+      this.depth = d;
+      this.xPages = (w + 63) >> 6;
+      this.zPages = (h + 15) >> 4;
+      this.pages = new AtomicReferenceArray<>((int)((long)this.xPages * (long)((d + 15) >> 4) * (long)this.zPages));
+   }
+
+   private int pageIndex(int wx, int y, int z) {
+      return ((y >> 4) * this.zPages + (z >> 4)) * this.xPages + wx;
+   }
+
+   public boolean get(int x, int y, int z) {
+      long[] page = (long[])this.pages.get(this.pageIndex(x >> 6, y, z));
+      return page != null && (page[(y & 15) << 4 | z & 15] >>> x & 1L) != 0L;
+   }
+
+   public long getWord(int wx, int y, int z) {
+      long[] page = (long[])this.pages.get(this.pageIndex(wx, y, z));
+      return page == null ? 0L : page[(y & 15) << 4 | z & 15];
+   }
+
+   public void set(int x, int y, int z, boolean solid) {
+      int p = this.pageIndex(x >> 6, y, z);
+      int i = (y & 15) << 4 | z & 15;
+      long[] page = (long[])this.pages.get(p);
+      long word = page == null ? 0L : page[i];
+      long updated = solid ? word | 1L << x : word & ~(1L << x);
+      if (updated != word) {
+         long[] copy = page == null ? new long[256] : (long[])page.clone();
+         copy[i] = updated;
+         this.pages.set(p, copy);
+      }
+
+   }
+
+   public void setSection(int xs, int ys, int zs, Section section) {
+      int p = this.pageIndex(xs >> 2, ys << 4, zs << 4);
+      int shift = (xs & 3) << 4;
+      long valid = (1L << Math.min(16, this.width - (xs << 4))) - 1L;
+      long[] page = (long[])this.pages.get(p);
+      long[] copy = new long[256];
+      long any = 0L;
+      if (section == null || section.isUniform()) {
+         long lane = section != null && section.get(0) == 1 ? valid << shift : 0L;
+         if (page == null && lane == 0L) {
+            return;
+         }
+
+         for(int i = 0; i < 256; ++i) {
+            copy[i] = (page == null ? 0L : page[i] & ~(0xFFFFL << shift)) | lane;
+            any |= copy[i];
+         }
+      } else {
+         for(int i = 0; i < 256; ++i) {
+            long lane = 0L;
+
+            for(int x = 0; x < 16; ++x) {
+               if (section.get(i << 4 | x) == 1) {
+                  lane |= 1L << x;
+               }
+            }
+
+            copy[i] = (page == null ? 0L : page[i] & ~(0xFFFFL << shift)) | (lane & valid) << shift;
+            any |= copy[i];
+         }
+      }
+
+      this.pages.set(p, any == 0L ? null : copy);
+   }
+
+   public boolean anySolid(int x0, int x1, int y, int z) {
+      if (x0 >= x1) {
+         return false;
+      } else {
+         int w0 = x0 >> 6;
+         int w1 = x1 - 1 >> 6;
+
+         for(int wx = w0; wx <= w1; ++wx) {
+            long mask = -1L;
+            if (wx == w0) {
+               mask &= -1L << x0;
+            }
+
+            if (wx == w1) {
+               mask &= -1L >>> 63 - (x1 - 1 & 63);
+            }
+
+            if ((this.getWord(wx, y, z) & mask) != 0L) {
+               return true;
+            }
+         }
+
+         return false;
+      }
+   }
+
+   public int firstSolidBelow(int x, int y, int z) {
+      int wx = x >> 6;
+      long bit = 1L << x;
+
+      while(--y >= 0) {
+         long[] page = (long[])this.pages.get(this.pageIndex(wx, y, z));
+         if (page == null) {
+            y &= -16;
+         } else if ((page[(y & 15) << 4 | z & 15] & bit) != 0L) {
+            return y;
+         }
+      }
+
+      return -1;
+   }
+}
@@ -0,0 +1,86 @@
+package com.mojang.rubydung.level;
+
+import com.mojang.rubydung.Player;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+public class RebuildScheduler {
+   public static final int NEAR = 0;
+   public static final int VISIBLE = 1;
+   public static final int HIDDEN = 2;
+   private final ChunkBuilder chunkBuilder = new ChunkBuilder();
+   private final PriorityQueue<Chunk> queue = new PriorityQueue<>((a, b) -> a.priority != b.priority ? a.priority - b.priority : Float.compare(a.distanceSq, b.distanceSq));
+   private final List<Chunk> deferred = new ArrayList<>();
+   private final ChunkTesselator[] layers = new ChunkTesselator[]{new ChunkTesselator(), new ChunkTesselator()};
+   private final GreedyMesher mesher = new GreedyMesher();
+   private final VisibilityGraph visibilityGraph = new VisibilityGraph();
+   public int maxPendingBuilds = ChunkBuilder.THREADS * 2;
+
+   public void add(Chunk chunk) {
+      if (!chunk.queued) {
+         chunk.queued = true;
+         this.queue.add(chunk);
+      }
+
+   }
+
+   public int size() {
+      return this.queue.size();
+   }
+
+   public int upload(long budgetNanos) {
+      return this.chunkBuilder.upload(budgetNanos, this::add);
+   }
+
+   public void rebuild(Player player, Frustum frustum, long budgetNanos) {
+      long deadline = System.nanoTime() + budgetNanos;
+      int xs = (int)Math.floor((double)player.x) >> 4;
+      int ys = (int)Math.floor((double)player.y) >> 4;
+      int zs = (int)Math.floor((double)player.z) >> 4;
+      Chunk[] pending = (Chunk[])this.queue.toArray(new Chunk[0]);
+      this.queue.clear();
+
+      for(int i = 0; i < pending.length; ++i) {
+         Chunk chunk = pending[i];
+         float dx = (float)(chunk.x0 + chunk.x1) * 0.5F - player.x;
+         float dy = (float)(chunk.y0 + chunk.y1) * 0.5F - player.y;
+         float dz = (float)(chunk.z0 + chunk.z1) * 0.5F - player.z;
+         chunk.distanceSq = dx * dx + dy * dy + dz * dz;
+         if (Math.abs((chunk.x0 >> 4) - xs) <= 1 && Math.abs((chunk.y0 >> 4) - ys) <= 1 && Math.abs((chunk.z0 >> 4) - zs) <= 1) {
+            chunk.priority = NEAR;
+         } else {
+            chunk.priority = frustum.cubeInFrustum(chunk.aabb) ? VISIBLE : HIDDEN;
+         }
+
+         this.queue.add(chunk);
+      }
+
+      Chunk chunk;
+      while((chunk = (Chunk)this.queue.poll()) != null) {
+         if (!chunk.attached || !chunk.isDirty()) {
+            chunk.queued = false;
+         } else if (chunk.isEmpty()) {
+            chunk.queued = false;
+            chunk.skipBuild();
+         } else if (chunk.priority == NEAR) {
+            chunk.queued = false;
+            int generation = chunk.beginBuild();
+            ChunkCache cache = chunk.createCache();
+            ChunkMesh[] meshes = chunk.buildMeshes(cache, this.layers, this.mesher);
+            chunk.finishBuild(generation, meshes, cache == null ? VisibilityGraph.ALL : this.visibilityGraph.compute(cache, chunk.x0, chunk.y0, chunk.z0, chunk.x1, chunk.y1, chunk.z1));
+         } else if (System.nanoTime() >= deadline || this.chunkBuilder.getPendingBuilds() >= this.maxPendingBuilds) {
+            this.deferred.add(chunk);
+            break;
+         } else if (chunk.needsBuild()) {
+            chunk.queued = false;
+            this.chunkBuilder.submit(chunk);
+         } else {
+            this.deferred.add(chunk);
+         }
+      }
+
+      this.queue.addAll(this.deferred);
+      this.deferred.clear();
+   }
+}
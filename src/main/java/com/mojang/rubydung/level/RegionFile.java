@@ -0,0 +1,254 @@
+package com.mojang.rubydung.level;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+public class RegionFile {
+   public static final int MAGIC = 1380207702;
+   public static final int VERSION = 1;
+   private static final int HEADER_SIZE = 24;
+   private static final int ENTRY_SIZE = 16;
+   private static final int TABLE_BATCH = 65536;
+   private FileChannel channel;
+   public final int width;
+   public final int height;
+   public final int depth;
+   public final int sectionCount;
+   private long[] offsets;
+   private int[] lengths;
+   private int[] capacities;
+   private BitSet changedEntries = new BitSet();
+   private long end;
+
+   private RegionFile(FileChannel channel, int w, int h, int d, int sectionCount) {
+      this.channel = channel;
+      this.width = w;
+      this.height = h;
+      this.depth = d;
+      this.sectionCount = sectionCount;
+      this.offsets = new long[sectionCount];
+      this.lengths = new int[sectionCount];
+      this.capacities = new int[sectionCount];
+      this.end = (long)HEADER_SIZE + (long)sectionCount * ENTRY_SIZE;
+   }
+
+   public static boolean isRegionFile(File file) throws IOException {
+      if (!file.isFile()) {
+         return false;
+      } else {
+         FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+
+         try {
+            ByteBuffer bb = ByteBuffer.allocate(4);
+            return channel.read(bb, 0L) == 4 && bb.getInt(0) == MAGIC;
+         } finally {
+            channel.close();
+         }
+      }
+   }
+
+   public static RegionFile open(File file, int w, int h, int d, int sectionCount) throws IOException {
+      if (!isRegionFile(file)) {
+         return null;
+      } else {
+         FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+         ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+         readFully(channel, header, 0L);
+         header.flip();
+         header.getInt();
+         if (header.getInt() == VERSION && header.getInt() == w && header.getInt() == h && header.getInt() == d && header.getInt() == sectionCount) {
+            RegionFile region = new RegionFile(channel, w, h, d, sectionCount);
+            ByteBuffer table = ByteBuffer.allocate(Math.min(sectionCount, TABLE_BATCH) * ENTRY_SIZE);
+
+            for(int i0 = 0; i0 < sectionCount; i0 += TABLE_BATCH) {
+               int n = Math.min(TABLE_BATCH, sectionCount - i0);
+               table.clear().limit(n * ENTRY_SIZE);
+               readFully(channel, table, (long)HEADER_SIZE + (long)i0 * ENTRY_SIZE);
+               table.flip();
+
+               for(int i = i0; i < i0 + n; ++i) {
+                  region.offsets[i] = table.getLong();
+                  region.lengths[i] = table.getInt();
+                  region.capacities[i] = table.getInt();
+                  region.end = Math.max(region.end, region.offsets[i] + (long)region.capacities[i]);
+               }
+            }
+
+            return region;
+         } else {
+            channel.close();
+            return null;
+         }
+      }
+   }
+
+   public static RegionFile create(File file, int w, int h, int d, int sectionCount) throws IOException {
+      FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      header.putInt(MAGIC).putInt(VERSION).putInt(w).putInt(h).putInt(d).putInt(sectionCount);
+      header.flip();
+      writeFully(channel, header, 0L);
+      RegionFile region = new RegionFile(channel, w, h, d, sectionCount);
+      region.changedEntries.set(0, sectionCount);
+      return region;
+   }
+
+   public synchronized boolean hasSection(int i) {
+      return this.lengths[i] > 0;
+   }
+
+   public Section readSection(int i) throws IOException {
+      byte[] data = this.readEncoded(i);
+      return data == null ? null : decode(data, data.length);
+   }
+
+   public synchronized byte[] readEncoded(int i) throws IOException {
+      if (this.lengths[i] == 0) {
+         return null;
+      } else {
+         ByteBuffer bb = ByteBuffer.allocate(this.lengths[i]);
+         readFully(this.channel, bb, this.offsets[i]);
+         return bb.array();
+      }
+   }
+
+   public int writeSection(int i, Section section) throws IOException {
+      return this.writeEncoded(i, encode(section));
+   }
+
+   public synchronized int writeEncoded(int i, byte[] data) throws IOException {
+      if (data.length > this.capacities[i]) {
+         this.offsets[i] = this.end;
+         this.capacities[i] = data.length + 15 & -16;
+         this.end += (long)this.capacities[i];
+      }
+
+      this.lengths[i] = data.length;
+      writeFully(this.channel, ByteBuffer.wrap(data), this.offsets[i]);
+      this.changedEntries.set(i);
+      return data.length;
+   }
+
+   public void close() throws IOException {
+      try {
+         this.flush();
+      } finally {
+         this.channel.close();
+      }
+
+   }
+
+   public synchronized void flush() throws IOException {
+      if (this.changedEntries.cardinality() == this.sectionCount) {
+         ByteBuffer table = ByteBuffer.allocate(Math.min(this.sectionCount, TABLE_BATCH) * ENTRY_SIZE);
+
+         for(int i0 = 0; i0 < this.sectionCount; i0 += TABLE_BATCH) {
+            table.clear();
+
+            for(int i = i0; i < Math.min(this.sectionCount, i0 + TABLE_BATCH); ++i) {
+               table.putLong(this.offsets[i]).putInt(this.lengths[i]).putInt(this.capacities[i]);
+            }
+
+            table.flip();
+            writeFully(this.channel, table, (long)HEADER_SIZE + (long)i0 * ENTRY_SIZE);
+         }
+      } else {
+         ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+
+         for(int i = this.changedEntries.nextSetBit(0); i >= 0; i = this.changedEntries.nextSetBit(i + 1)) {
+            entry.clear();
+            entry.putLong(this.offsets[i]).putInt(this.lengths[i]).putInt(this.capacities[i]);
+            entry.flip();
+            writeFully(this.channel, entry, (long)HEADER_SIZE + (long)i * ENTRY_SIZE);
+         }
+      }
+
+      this.changedEntries.clear();
+   }
+
+   public static byte[] encode(Section section) {
+      if (section.isUniform()) {
+         return new byte[]{0, section.get(0)};
+      } else {
+         byte[] values = new byte[4096];
+         section.getAll(values);
+         Deflater deflater = new Deflater(1);
+         deflater.setInput(values);
+         deflater.finish();
+         byte[] buf = new byte[4200];
+         buf[0] = 1;
+         int length = 1;
+
+         while(!deflater.finished()) {
+            if (length == buf.length) {
+               buf = Arrays.copyOf(buf, buf.length * 2);
+            }
+
+            length += deflater.deflate(buf, length, buf.length - length);
+         }
+
+         deflater.end();
+         return Arrays.copyOf(buf, length);
+      }
+   }
+
+   public static Section decode(byte[] data, int length) throws IOException {
+      if (data[0] == 0) {
+         return new Section(data[1]);
+      } else {
+         byte[] values = new byte[4096];
+         Inflater inflater = new Inflater();
+
+         try {
+            inflater.setInput(data, 1, length - 1);
+            int read = 0;
+
+            while(read < 4096 && !inflater.finished()) {
+               int n = inflater.inflate(values, read, 4096 - read);
+               if (n == 0 && inflater.needsInput()) {
+                  break;
+               }
+
+               read += n;
+            }
+
+            if (read != 4096) {
+               throw new IOException("Truncated section data");
+            }
+         } catch (DataFormatException e) {
+            throw new IOException(e);
+         } finally {
+            inflater.end();
+         }
+
+         return Section.of(values);
+      }
+   }
+
+   private static void readFully(FileChannel channel, ByteBuffer bb, long pos) throws IOException {
+      while(bb.hasRemaining()) {
+         int n = channel.read(bb, pos);
+         if (n < 0) {
+            throw new IOException("Unexpected end of region file");
+         }
+
+         pos += (long)n;
+      }
+
+   }
+
+   private static void writeFully(FileChannel channel, ByteBuffer bb, long pos) throws IOException {
+      while(bb.hasRemaining()) {
+         pos += (long)channel.write(bb, pos);
+      }
+
+   }
+}
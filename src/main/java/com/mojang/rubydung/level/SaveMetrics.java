@@ -0,0 +1,7 @@
+package com.mojang.rubydung.level;
+
+public interface SaveMetrics {
+   void saveProgress(int sectionsWritten, int sectionsTotal);
+
+   void saveFinished(int sectionsWritten, long bytesWritten, long nanos);
+}
@@ -0,0 +1,200 @@
+package com.mojang.rubydung.level;
+
+import java.util.Arrays;
+
+public class Section {
+   public static final int SIZE = 16;
+   public static final int VOLUME = 4096;
+   private byte[] palette;
+   private int[] counts;
+   private int paletteSize;
+   private int bits;
+   private int shift;
+   private int mask;
+   private long[] data;
+
+   public Section(byte value) {
+      this.palette = new byte[]{value};
+      this.counts = new int[]{VOLUME};
+      this.paletteSize = 1;
+      this.setBits(0);
+      this.data = null;
+   }
+
+   public Section copy() {
+      Section section = new Section(this.palette[0]);
+      section.palette = (byte[])this.palette.clone();
+      section.counts = (int[])this.counts.clone();
+      section.paletteSize = this.paletteSize;
+      section.bits = this.bits;
+      section.shift = this.shift;
+      section.mask = this.mask;
+      section.data = this.data == null ? null : (long[])this.data.clone();
+      return section;
+   }
+
+   public static Section of(byte[] values) {
+      byte[] palette = new byte[256];
+      int[] counts = new int[256];
+      int[] ids = new int[256];
+      int paletteSize = 0;
+
+      for(int i = 0; i < VOLUME; ++i) {
+         int v = values[i] & 255;
+         if (counts[v]++ == 0) {
+            ids[v] = paletteSize;
+            palette[paletteSize++] = values[i];
+         }
+      }
+
+      Section section = new Section(values[0]);
+      if (paletteSize > 1) {
+         section.setBits(bitsFor(paletteSize));
+         section.palette = new byte[1 << section.bits];
+         section.counts = new int[1 << section.bits];
+         section.paletteSize = paletteSize;
+         section.data = new long[VOLUME * section.bits / 64];
+
+         for(int i = 0; i < paletteSize; ++i) {
+            section.palette[i] = palette[i];
+            section.counts[i] = counts[palette[i] & 255];
+         }
+
+         for(int i = 0; i < VOLUME; ++i) {
+            section.setIndex(i, ids[values[i] & 255]);
+         }
+      }
+
+      return section;
+   }
+
+   private static int bitsFor(int paletteSize) {
+      int bits = 1;
+
+      while(1 << bits < paletteSize) {
+         bits <<= 1;
+      }
+
+      return bits;
+   }
+
+   public boolean isUniform() {
+      return this.data == null;
+   }
+
+   private void setBits(int bits) {
+      this.bits = bits;
+      this.shift = Integer.numberOfTrailingZeros(bits);
+      this.mask = (1 << bits) - 1;
+   }
+
+   public byte get(int i) {
+      long[] data = this.data;
+      if (data == null) {
+         return this.palette[0];
+      } else {
+         int bitIndex = i << this.shift;
+         return this.palette[(int)(data[bitIndex >> 6] >>> bitIndex) & this.mask];
+      }
+   }
+
+   public byte get(int x, int y, int z) {
+      return this.get(y << 8 | z << 4 | x);
+   }
+
+   public void set(int i, byte value) {
+      if (this.data == null) {
+         if (this.palette[0] == value) {
+            return;
+         }
+
+         this.grow(1);
+      }
+
+      int old = this.getIndex(i);
+      if (this.palette[old] != value) {
+         int id = this.idFor(value);
+         this.setIndex(i, id);
+         ++this.counts[id];
+         --this.counts[old];
+         if (this.counts[id] == VOLUME) {
+            this.fill(value);
+         }
+      }
+   }
+
+   public void fill(byte value) {
+      this.palette = new byte[]{value};
+      this.counts = new int[]{VOLUME};
+      this.paletteSize = 1;
+      this.setBits(0);
+      this.data = null;
+   }
+
+   public void getAll(byte[] values) {
+      if (this.data == null) {
+         Arrays.fill(values, 0, VOLUME, this.palette[0]);
+      } else {
+         for(int i = 0; i < VOLUME; ++i) {
+            values[i] = this.palette[this.getIndex(i)];
+         }
+      }
+
+   }
+
+   private int idFor(byte value) {
+      int free = -1;
+
+      for(int i = 0; i < this.paletteSize; ++i) {
+         if (this.palette[i] == value) {
+            return i;
+         }
+
+         if (free < 0 && this.counts[i] == 0) {
+            free = i;
+         }
+      }
+
+      if (free < 0) {
+         if (this.paletteSize == 1 << this.bits) {
+            this.grow(this.bits << 1);
+         }
+
+         free = this.paletteSize++;
+      }
+
+      this.palette[free] = value;
+      this.counts[free] = 0;
+      return free;
+   }
+
+   private void grow(int newBits) {
+      byte[] newPalette = new byte[1 << newBits];
+      int[] newCounts = new int[1 << newBits];
+      long[] newData = new long[VOLUME * newBits / 64];
+      System.arraycopy(this.palette, 0, newPalette, 0, this.paletteSize);
+      System.arraycopy(this.counts, 0, newCounts, 0, this.paletteSize);
+      if (this.data != null) {
+         for(int i = 0; i < VOLUME; ++i) {
+            int bitIndex = i * newBits;
+            newData[bitIndex >> 6] |= (long)this.getIndex(i) << (bitIndex & 63);
+         }
+      }
+
+      this.palette = newPalette;
+      this.counts = newCounts;
+      this.setBits(newBits);
+      this.data = newData;
+   }
+
+   private int getIndex(int i) {
+      int bitIndex = i << this.shift;
+      return (int)(this.data[bitIndex >> 6] >>> bitIndex) & this.mask;
+   }
+
+   private void setIndex(int i, int id) {
+      int bitIndex = i << this.shift;
+      long mask = (long)this.mask << (bitIndex & 63);
+      this.data[bitIndex >> 6] = this.data[bitIndex >> 6] & ~mask | (long)id << (bitIndex & 63) & mask;
+   }
+}
@@ -0,0 +1,61 @@
+package com.mojang.rubydung.level;
+
+public class SectionSnapshot {
+   public final int xs;
+   public final int ys;
+   public final int zs;
+   public final int version;
+   private final Section section;
+   private final Section[] neighbours;
+   private final int[] neighbourVersions;
+
+   public SectionSnapshot(int xs, int ys, int zs, int version, Section section, int[] neighbourVersions, Section[] neighbours) {
+      this.xs = xs;
+      this.ys = ys;
+      this.zs = zs;
+      this.version = version;
+      this.section = section;
+      this.neighbourVersions = neighbourVersions;
+      this.neighbours = neighbours;
+   }
+
+   public int getNeighbourVersion(int face) {
+      return this.neighbours[face] == null ? -1 : this.neighbourVersions[face];
+   }
+
+   public byte get(int x, int y, int z) {
+      int outside = (x < 0 || x > 15 ? 1 : 0) + (y < 0 || y > 15 ? 1 : 0) + (z < 0 || z > 15 ? 1 : 0);
+      if (outside == 0) {
+         return this.section.get(x, y, z);
+      } else if (outside == 1 && x >= -1 && y >= -1 && z >= -1 && x <= 16 && y <= 16 && z <= 16) {
+         int face = y < 0 ? 0 : (y > 15 ? 1 : (z < 0 ? 2 : (z > 15 ? 3 : (x < 0 ? 4 : 5))));
+         Section neighbour = this.neighbours[face];
+         return neighbour == null ? 0 : neighbour.get(x & 15, y & 15, z & 15);
+      } else {
+         return 0;
+      }
+   }
+
+   public void getAll(byte[] values) {
+      this.section.getAll(values);
+   }
+
+   public void getBorder(int face, byte[] values) {
+      Section neighbour = this.neighbours[face];
+
+      for(int a = 0; a < 16; ++a) {
+         for(int b = 0; b < 16; ++b) {
+            if (neighbour == null) {
+               values[a << 4 | b] = 0;
+            } else if (face < 2) {
+               values[a << 4 | b] = neighbour.get(b, face == 0 ? 15 : 0, a);
+            } else if (face < 4) {
+               values[a << 4 | b] = neighbour.get(b, a, face == 2 ? 15 : 0);
+            } else {
+               values[a << 4 | b] = neighbour.get(face == 4 ? 15 : 0, a, b);
+            }
+         }
+      }
+
+   }
+}
@@ -3,13 +3,18 @@ package com.mojang.rubydung.level;
 public class Tile {
    public static Tile rock = new Tile(0);
    public static Tile grass = new Tile(1);
-   private int tex = 0;
+   public final int tex;
 
    private Tile(int tex) {
       this.tex = tex;
    }
 
-   public void render(Tesselator t, Level level, int layer, int x, int y, int z) {
+   public void render(ChunkTesselator[] layers, LevelSource level, int x, int y, int z) {
+      int faces = (level.isSolidTile(x, y - 1, z) ? 0 : 1) | (level.isSolidTile(x, y + 1, z) ? 0 : 2) | (level.isSolidTile(x, y, z - 1) ? 0 : 4) | (level.isSolidTile(x, y, z + 1) ? 0 : 8) | (level.isSolidTile(x - 1, y, z) ? 0 : 16) | (level.isSolidTile(x + 1, y, z) ? 0 : 32);
+      this.render(layers, level, x, y, z, faces);
+   }
+
+   public void render(ChunkTesselator[] layers, LevelSource level, int x, int y, int z, int faces) {
       float u0 = (float)this.tex / 16.0F;
       float u1 = u0 + 0.0624375F;
       float v0 = 0.0F;
@@ -23,94 +28,114 @@ public class Tile {
       float y1 = (float)y + 1.0F;
       float z0 = (float)z + 0.0F;
       float z1 = (float)z + 1.0F;
-      if (!level.isSolidTile(x, y - 1, z)) {
+      if ((faces & 1) != 0) {
          float br = level.getBrightness(x, y - 1, z) * c1;
-         if (br == c1 ^ layer == 1) {
-            t.color(br, br, br);
-            t.tex(u0, v1);
-            t.vertex(x0, y0, z1);
-            t.tex(u0, v0);
-            t.vertex(x0, y0, z0);
-            t.tex(u1, v0);
-            t.vertex(x1, y0, z0);
-            t.tex(u1, v1);
-            t.vertex(x1, y0, z1);
-         }
-      }
-
-      if (!level.isSolidTile(x, y + 1, z)) {
-         float br = level.getBrightness(x, y, z) * c1;
-         if (br == c1 ^ layer == 1) {
-            t.color(br, br, br);
-            t.tex(u1, v1);
-            t.vertex(x1, y1, z1);
-            t.tex(u1, v0);
-            t.vertex(x1, y1, z0);
-            t.tex(u0, v0);
-            t.vertex(x0, y1, z0);
-            t.tex(u0, v1);
-            t.vertex(x0, y1, z1);
-         }
-      }
-
-      if (!level.isSolidTile(x, y, z - 1)) {
+         ChunkTesselator t = layers[br == c1 ? 0 : 1];
+         t.color(br, br, br);
+         this.renderQuad(t, 0, x0, y0, z0, x1, y1, z1, u0, u1, v0, v1);
+      }
+
+      if ((faces & 2) != 0) {
+         float br = level.getBrightness(x, y + 1, z) * c1;
+         ChunkTesselator t = layers[br == c1 ? 0 : 1];
+         t.color(br, br, br);
+         this.renderQuad(t, 1, x0, y0, z0, x1, y1, z1, u0, u1, v0, v1);
+      }
+
+      if ((faces & 4) != 0) {
          float br = level.getBrightness(x, y, z - 1) * c2;
-         if (br == c2 ^ layer == 1) {
-            t.color(br, br, br);
-            t.tex(u1, v0);
-            t.vertex(x0, y1, z0);
-            t.tex(u0, v0);
-            t.vertex(x1, y1, z0);
-            t.tex(u0, v1);
-            t.vertex(x1, y0, z0);
-            t.tex(u1, v1);
-            t.vertex(x0, y0, z0);
-         }
-      }
-
-      if (!level.isSolidTile(x, y, z + 1)) {
+         ChunkTesselator t = layers[br == c2 ? 0 : 1];
+         t.color(br, br, br);
+         this.renderQuad(t, 2, x0, y0, z0, x1, y1, z1, u0, u1, v0, v1);
+      }
+
+      if ((faces & 8) != 0) {
          float br = level.getBrightness(x, y, z + 1) * c2;
-         if (br == c2 ^ layer == 1) {
-            t.color(br, br, br);
-            t.tex(u0, v0);
-            t.vertex(x0, y1, z1);
-            t.tex(u0, v1);
-            t.vertex(x0, y0, z1);
-            t.tex(u1, v1);
-            t.vertex(x1, y0, z1);
-            t.tex(u1, v0);
-            t.vertex(x1, y1, z1);
-         }
-      }
-
-      if (!level.isSolidTile(x - 1, y, z)) {
+         ChunkTesselator t = layers[br == c2 ? 0 : 1];
+         t.color(br, br, br);
+         this.renderQuad(t, 3, x0, y0, z0, x1, y1, z1, u0, u1, v0, v1);
+      }
+
+      if ((faces & 16) != 0) {
          float br = level.getBrightness(x - 1, y, z) * c3;
-         if (br == c3 ^ layer == 1) {
-            t.color(br, br, br);
-            t.tex(u1, v0);
-            t.vertex(x0, y1, z1);
-            t.tex(u0, v0);
-            t.vertex(x0, y1, z0);
-            t.tex(u0, v1);
-            t.vertex(x0, y0, z0);
-            t.tex(u1, v1);
-            t.vertex(x0, y0, z1);
-         }
-      }
-
-      if (!level.isSolidTile(x + 1, y, z)) {
+         ChunkTesselator t = layers[br == c3 ? 0 : 1];
+         t.color(br, br, br);
+         this.renderQuad(t, 4, x0, y0, z0, x1, y1, z1, u0, u1, v0, v1);
+      }
+
+      if ((faces & 32) != 0) {
          float br = level.getBrightness(x + 1, y, z) * c3;
-         if (br == c3 ^ layer == 1) {
-            t.color(br, br, br);
-            t.tex(u0, v1);
-            t.vertex(x1, y0, z1);
-            t.tex(u1, v1);
-            t.vertex(x1, y0, z0);
-            t.tex(u1, v0);
-            t.vertex(x1, y1, z0);
-            t.tex(u0, v0);
-            t.vertex(x1, y1, z1);
-         }
+         ChunkTesselator t = layers[br == c3 ? 0 : 1];
+         t.color(br, br, br);
+         this.renderQuad(t, 5, x0, y0, z0, x1, y1, z1, u0, u1, v0, v1);
+      }
+   }
+
+   public void renderQuad(ChunkTesselator t, int face, float x0, float y0, float z0, float x1, float y1, float z1, float u0, float u1, float v0, float v1) {
+      if (face == 0) {
+         t.tex(u0, v1);
+         t.vertex(x0, y0, z1);
+         t.tex(u0, v0);
+         t.vertex(x0, y0, z0);
+         t.tex(u1, v0);
+         t.vertex(x1, y0, z0);
+         t.tex(u1, v1);
+         t.vertex(x1, y0, z1);
+      }
+
+      if (face == 1) {
+         t.tex(u1, v1);
+         t.vertex(x1, y1, z1);
+         t.tex(u1, v0);
+         t.vertex(x1, y1, z0);
+         t.tex(u0, v0);
+         t.vertex(x0, y1, z0);
+         t.tex(u0, v1);
+         t.vertex(x0, y1, z1);
+      }
+
+      if (face == 2) {
+         t.tex(u1, v0);
+         t.vertex(x0, y1, z0);
+         t.tex(u0, v0);
+         t.vertex(x1, y1, z0);
+         t.tex(u0, v1);
+         t.vertex(x1, y0, z0);
+         t.tex(u1, v1);
+         t.vertex(x0, y0, z0);
+      }
+
+      if (face == 3) {
+         t.tex(u0, v0);
+         t.vertex(x0, y1, z1);
+         t.tex(u0, v1);
+         t.vertex(x0, y0, z1);
+         t.tex(u1, v1);
+         t.vertex(x1, y0, z1);
+         t.tex(u1, v0);
+         t.vertex(x1, y1, z1);
+      }
+
+      if (face == 4) {
+         t.tex(u1, v0);
+         t.vertex(x0, y1, z1);
+         t.tex(u0, v0);
+         t.vertex(x0, y1, z0);
+         t.tex(u0, v1);
+         t.vertex(x0, y0, z0);
+         t.tex(u1, v1);
+         t.vertex(x0, y0, z1);
+      }
+
+      if (face == 5) {
+         t.tex(u0, v1);
+         t.vertex(x1, y0, z1);
+         t.tex(u1, v1);
+         t.vertex(x1, y0, z0);
+         t.tex(u1, v0);
+         t.vertex(x1, y1, z0);
+         t.tex(u0, v0);
+         t.vertex(x1, y1, z1);
       }
    }
 
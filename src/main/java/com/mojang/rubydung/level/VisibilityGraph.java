@@ -0,0 +1,105 @@
+package com.mojang.rubydung.level;
+
+public class VisibilityGraph {
+   public static final long ALL = 68719476735L;
+   public static final long NONE = 0L;
+   private final int[] queue = new int[4096];
+   private final boolean[] visited = new boolean[4096];
+
+   public static boolean isConnected(long visibility, int from, int to) {
+      return (visibility >>> from * 6 + to & 1L) != 0L;
+   }
+
+   public long compute(LevelSource level, int x0, int y0, int z0, int x1, int y1, int z1) {
+      int w = x1 - x0;
+      int h = z1 - z0;
+      int d = y1 - y0;
+      long visibility = NONE;
+
+      for(int i = 0; i < 4096; ++i) {
+         int x = i & 15;
+         int y = i >> 8;
+         int z = i >> 4 & 15;
+         this.visited[i] = x >= w || y >= d || z >= h || level.isSolidTile(x0 + x, y0 + y, z0 + z);
+      }
+
+      for(int start = 0; start < 4096; ++start) {
+         if (!this.visited[start]) {
+            int faces = this.fill(start, w, h, d);
+
+            for(int a = 0; a < 6; ++a) {
+               if ((faces >> a & 1) != 0) {
+                  visibility |= (long)faces << a * 6;
+               }
+            }
+
+            if (visibility == ALL) {
+               break;
+            }
+         }
+      }
+
+      return visibility;
+   }
+
+   private int fill(int start, int w, int h, int d) {
+      int head = 0;
+      int tail = 0;
+      int faces = 0;
+      this.visited[start] = true;
+      this.queue[tail++] = start;
+
+      while(head < tail) {
+         int i = this.queue[head++];
+         int x = i & 15;
+         int y = i >> 8;
+         int z = i >> 4 & 15;
+         if (y == 0) {
+            faces |= 1;
+         } else {
+            tail = this.visit(i - 256, tail);
+         }
+
+         if (y == d - 1) {
+            faces |= 2;
+         } else {
+            tail = this.visit(i + 256, tail);
+         }
+
+         if (z == 0) {
+            faces |= 4;
+         } else {
+            tail = this.visit(i - 16, tail);
+         }
+
+         if (z == h - 1) {
+            faces |= 8;
+         } else {
+            tail = this.visit(i + 16, tail);
+         }
+
+         if (x == 0) {
+            faces |= 16;
+         } else {
+            tail = this.visit(i - 1, tail);
+         }
+
+         if (x == w - 1) {
+            faces |= 32;
+         } else {
+            tail = this.visit(i + 1, tail);
+         }
+      }
+
+      return faces;
+   }
+
+   private int visit(int i, int tail) {
+      if (!this.visited[i]) {
+         this.visited[i] = true;
+         this.queue[tail++] = i;
+      }
+
+      return tail;
+   }
+}
@@ -0,0 +1,77 @@
+package com.mojang.rubydung.level;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class BlockStorageTest {
+   @TempDir
+   File tempDir;
+   private BlockStorage blocks;
+
+   @BeforeEach
+   public void setUp() {
+      this.blocks = new BlockStorage(32, 32, 32);
+
+      for(int i = 0; i < this.blocks.getSectionCount(); ++i) {
+         this.blocks.setSection(i, new Section((byte)0));
+      }
+
+   }
+
+   @Test
+   public void writesAdvanceTheVersion() {
+      int i = this.blocks.getSectionIndex(1, 0, 1);
+      int before = this.blocks.getVersion(i);
+      this.blocks.set(20, 3, 20, (byte)1);
+      assertTrue(this.blocks.getVersion(i) > before);
+      int unchanged = this.blocks.getVersion(i);
+      this.blocks.set(20, 3, 20, (byte)1);
+      assertEquals(unchanged, this.blocks.getVersion(i));
+      assertEquals(before, this.blocks.getVersion(this.blocks.getSectionIndex(0, 0, 0)));
+   }
+
+   @Test
+   public void reloadedSectionNeverReusesAVersion() {
+      int i = this.blocks.getSectionIndex(1, 1, 0);
+      this.blocks.set(16, 16, 0, (byte)1);
+      Section saved = this.blocks.share(i);
+      int stale = this.blocks.getVersion(i);
+      this.blocks.setSection(i, null);
+      assertEquals(-1, this.blocks.getVersion(i));
+      this.blocks.setSection(i, saved.copy());
+      assertTrue(this.blocks.getVersion(i) > stale);
+      int evictedOnce = this.blocks.getVersion(i);
+      this.blocks.setSection(i, null);
+      this.blocks.setSection(i, saved.copy());
+      assertTrue(this.blocks.getVersion(i) > evictedOnce);
+   }
+
+   @Test
+   public void batchBumpsEachTouchedSectionOnce() {
+      int i = this.blocks.getSectionIndex(0, 0, 0);
+      int before = this.blocks.getVersion(i);
+      this.blocks.beginBatch();
+      this.blocks.set(1, 1, 1, (byte)1);
+      this.blocks.set(2, 2, 2, (byte)1);
+      this.blocks.endBatch();
+      assertEquals(before + 1, this.blocks.getVersion(i));
+   }
+
+   @Test
+   public void snapshotGoesStaleAfterAWrite() {
+      Level level = new Level(64, 64, 64, 0, new File(this.tempDir, "level.dat"));
+      SectionSnapshot snapshot = level.snapshotSection(1, 2, 1);
+      SectionSnapshot below = level.snapshotSection(1, 1, 1);
+      assertEquals(level.getSectionVersion(1, 2, 1), snapshot.version);
+      level.setTile(20, 40, 20, 0);
+      assertNotEquals(level.getSectionVersion(1, 2, 1), snapshot.version);
+      assertNotEquals(level.getSectionVersion(1, 2, 1), below.getNeighbourVersion(1));
+      assertEquals(level.getSectionVersion(1, 1, 1), below.version);
+   }
+}
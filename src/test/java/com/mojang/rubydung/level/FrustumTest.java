@@ -0,0 +1,162 @@
+package com.mojang.rubydung.level;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.mojang.rubydung.Player;
+import java.io.File;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FrustumTest {
+   @TempDir
+   File tempDir;
+   private Player player;
+   private Random random = new Random(23L);
+
+   @BeforeEach
+   public void setUp() {
+      this.player = new Player(new Level(16, 16, 16, 0, new File(this.tempDir, "level.dat")));
+   }
+
+   private static double[] multiply(double[] a, double[] b) {
+      double[] m = new double[16];
+
+      for(int col = 0; col < 4; ++col) {
+         for(int row = 0; row < 4; ++row) {
+            for(int k = 0; k < 4; ++k) {
+               m[col * 4 + row] += a[k * 4 + row] * b[col * 4 + k];
+            }
+         }
+      }
+
+      return m;
+   }
+
+   private static double[] translate(double x, double y, double z) {
+      return new double[]{1.0D, 0.0D, 0.0D, 0.0D, 0.0D, 1.0D, 0.0D, 0.0D, 0.0D, 0.0D, 1.0D, 0.0D, x, y, z, 1.0D};
+   }
+
+   private static double[] rotate(double degrees, double x, double y, double z) {
+      double c = Math.cos(Math.toRadians(degrees));
+      double s = Math.sin(Math.toRadians(degrees));
+      double t = 1.0D - c;
+      return new double[]{x * x * t + c, y * x * t + z * s, x * z * t - y * s, 0.0D, x * y * t - z * s, y * y * t + c, y * z * t + x * s, 0.0D, x * z * t + y * s, y * z * t - x * s, z * z * t + c, 0.0D, 0.0D, 0.0D, 0.0D, 1.0D};
+   }
+
+   private static double[] perspective(double fovy, double aspect, double zNear, double zFar) {
+      double f = 1.0D / Math.tan(Math.toRadians(fovy / 2.0D));
+      return new double[]{f / aspect, 0.0D, 0.0D, 0.0D, 0.0D, f, 0.0D, 0.0D, 0.0D, 0.0D, (zFar + zNear) / (zNear - zFar), -1.0D, 0.0D, 0.0D, 2.0D * zFar * zNear / (zNear - zFar), 0.0D};
+   }
+
+   private double[] clipMatrix(float fov, float aspect) {
+      double[] modelView = translate(0.0D, 0.0D, -0.3D);
+      modelView = multiply(modelView, rotate((double)this.player.xRot, 1.0D, 0.0D, 0.0D));
+      modelView = multiply(modelView, rotate((double)this.player.yRot, 0.0D, 1.0D, 0.0D));
+      modelView = multiply(modelView, translate((double)(-this.player.x), (double)(-this.player.y), (double)(-this.player.z)));
+      return multiply(perspective((double)fov, (double)aspect, 0.05D, 1000.0D), modelView);
+   }
+
+   private Frustum place(float fov, float aspect) {
+      this.player.x = this.player.xo = this.random.nextFloat() * 256.0F;
+      this.player.y = this.player.yo = this.random.nextFloat() * 64.0F;
+      this.player.z = this.player.zo = this.random.nextFloat() * 256.0F;
+      this.player.xRot = this.random.nextFloat() * 180.0F - 90.0F;
+      this.player.yRot = this.random.nextFloat() * 360.0F;
+      return Frustum.getFrustum(this.player, 1.0F, fov, aspect, 0.05F, 1000.0F);
+   }
+
+   @Test
+   public void planesMatchTheGlMatrixStack() {
+      int[] rows = new int[]{0, 0, 1, 1, 2, 2};
+      int[] signs = new int[]{-1, 1, 1, -1, -1, 1};
+
+      for(int n = 0; n < 200; ++n) {
+         float aspect = 0.5F + this.random.nextFloat() * 1.5F;
+         Frustum frustum = this.place(70.0F, aspect);
+         double[] clip = this.clipMatrix(70.0F, aspect);
+
+         for(int side = 0; side < 6; ++side) {
+            double[] plane = new double[4];
+
+            for(int k = 0; k < 4; ++k) {
+               plane[k] = clip[k * 4 + 3] + (double)signs[side] * clip[k * 4 + rows[side]];
+            }
+
+            double magnitude = Math.sqrt(plane[0] * plane[0] + plane[1] * plane[1] + plane[2] * plane[2]);
+
+            for(int k = 0; k < 3; ++k) {
+               assertEquals(plane[k] / magnitude, (double)frustum.planes[side * 4 + k], 1.0E-3D, "plane " + side + " component " + k);
+            }
+
+            assertEquals(plane[3] / magnitude, (double)frustum.planes[side * 4 + 3], 1.0E-3D * Math.max(1.0D, Math.abs(plane[3] / magnitude)), "plane " + side + " distance");
+         }
+      }
+
+   }
+
+   @Test
+   public void pointsInsideMatchClipSpace() {
+      for(int n = 0; n < 50; ++n) {
+         Frustum frustum = this.place(70.0F, 1.5F);
+         double[] clip = this.clipMatrix(70.0F, 1.5F);
+
+         for(int p = 0; p < 200; ++p) {
+            float x = this.player.x + (this.random.nextFloat() - 0.5F) * 200.0F;
+            float y = this.player.y + (this.random.nextFloat() - 0.5F) * 200.0F;
+            float z = this.player.z + (this.random.nextFloat() - 0.5F) * 200.0F;
+            double[] v = new double[4];
+
+            for(int row = 0; row < 4; ++row) {
+               v[row] = clip[row] * (double)x + clip[4 + row] * (double)y + clip[8 + row] * (double)z + clip[12 + row];
+            }
+
+            double margin = Math.min(Math.min(v[3] - Math.abs(v[0]), v[3] - Math.abs(v[1])), v[3] - Math.abs(v[2]));
+            if (Math.abs(margin) > 0.01D) {
+               assertEquals(margin > 0.0D, frustum.pointInFrustum(x, y, z), x + "," + y + "," + z);
+            }
+         }
+      }
+
+   }
+
+   @Test
+   public void boxTestsMatchEveryCorner() {
+      for(int n = 0; n < 50; ++n) {
+         Frustum frustum = this.place(70.0F, 1.0F);
+         float[] p = frustum.planes;
+
+         for(int b = 0; b < 200; ++b) {
+            float x0 = this.player.x + (this.random.nextFloat() - 0.5F) * 128.0F;
+            float y0 = this.player.y + (this.random.nextFloat() - 0.5F) * 128.0F;
+            float z0 = this.player.z + (this.random.nextFloat() - 0.5F) * 128.0F;
+            float x1 = x0 + this.random.nextFloat() * 16.0F;
+            float y1 = y0 + this.random.nextFloat() * 16.0F;
+            float z1 = z0 + this.random.nextFloat() * 16.0F;
+            boolean anyPlaneRejects = false;
+            boolean allInside = true;
+
+            for(int i = 0; i < 24; i += 4) {
+               int outside = 0;
+
+               for(int c = 0; c < 8; ++c) {
+                  float x = (c & 1) == 0 ? x0 : x1;
+                  float y = (c & 2) == 0 ? y0 : y1;
+                  float z = (c & 4) == 0 ? z0 : z1;
+                  if (!(p[i] * x + p[i + 1] * y + p[i + 2] * z + p[i + 3] > 0.0F)) {
+                     ++outside;
+                  }
+               }
+
+               anyPlaneRejects |= outside == 8;
+               allInside &= outside == 0;
+            }
+
+            assertEquals(!anyPlaneRejects, frustum.cubeInFrustum(x0, y0, z0, x1, y1, z1));
+            assertEquals(allInside, frustum.cubeFullyInFrustum(x0, y0, z0, x1, y1, z1));
+         }
+      }
+
+   }
+}
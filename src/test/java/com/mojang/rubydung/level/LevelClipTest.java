@@ -0,0 +1,144 @@
+package com.mojang.rubydung.level;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.mojang.rubydung.HitResult;
+import com.mojang.rubydung.phys.AABB;
+import java.io.File;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class LevelClipTest {
+   private static final float REACH = 3.0F;
+   @TempDir
+   File tempDir;
+   private Level level;
+   private Random random = new Random(25L);
+
+   @BeforeEach
+   public void setUp() {
+      this.level = new Level(64, 64, 64, 0, new File(this.tempDir, "level.dat"));
+      this.level.edit((batch) -> {
+         batch.fill(0, 43, 0, 64, 64, 64, 0);
+
+         for(int i = 0; i < 4000; ++i) {
+            batch.set(this.random.nextInt(64), 30 + this.random.nextInt(24), this.random.nextInt(64), this.random.nextInt(2));
+         }
+
+      });
+   }
+
+   private double[] bruteForce(double x, double y, double z, double xd, double yd, double zd, AABB bounds) {
+      int x0 = (int)(bounds.x0 - REACH);
+      int y0 = (int)(bounds.y0 - REACH);
+      int z0 = (int)(bounds.z0 - REACH);
+      int x1 = (int)(bounds.x1 + REACH + 1.0F);
+      int y1 = (int)(bounds.y1 + REACH + 1.0F);
+      int z1 = (int)(bounds.z1 + REACH + 1.0F);
+      double[] origin = new double[]{x, y, z};
+      double[] dir = new double[]{xd, yd, zd};
+      double[] best = null;
+
+      for(int xt = x0; xt < x1; ++xt) {
+         for(int yt = y0; yt < y1; ++yt) {
+            for(int zt = z0; zt < z1; ++zt) {
+               if (this.level.isSolidTile(xt, yt, zt) && (xt != (int)Math.floor(x) || yt != (int)Math.floor(y) || zt != (int)Math.floor(z))) {
+                  int[] cell = new int[]{xt, yt, zt};
+                  double enter = Double.NEGATIVE_INFINITY;
+                  double exit = Double.POSITIVE_INFINITY;
+                  int axis = -1;
+
+                  for(int a = 0; a < 3; ++a) {
+                     if (dir[a] == 0.0D) {
+                        if (origin[a] < (double)cell[a] || origin[a] >= (double)(cell[a] + 1)) {
+                           exit = Double.NEGATIVE_INFINITY;
+                        }
+                     } else {
+                        double t0 = ((double)cell[a] - origin[a]) / dir[a];
+                        double t1 = ((double)(cell[a] + 1) - origin[a]) / dir[a];
+                        if (Math.min(t0, t1) > enter) {
+                           enter = Math.min(t0, t1);
+                           axis = a;
+                        }
+
+                        exit = Math.min(exit, Math.max(t0, t1));
+                     }
+                  }
+
+                  if (enter < exit && enter > 0.0D && (best == null || enter < best[0])) {
+                     int face = axis == 0 ? (dir[0] > 0.0D ? 4 : 5) : (axis == 1 ? (dir[1] > 0.0D ? 0 : 1) : (dir[2] > 0.0D ? 2 : 3));
+                     best = new double[]{enter, (double)xt, (double)yt, (double)zt, (double)face};
+                  }
+               }
+            }
+         }
+      }
+
+      return best;
+   }
+
+   @Test
+   public void clipMatchesABruteForceCellWalk() {
+      HitResult hit = new HitResult(0, 0, 0, 0, 0);
+      int hits = 0;
+
+      for(int n = 0; n < 2000; ++n) {
+         float x = 8.0F + this.random.nextFloat() * 48.0F;
+         float y = 36.0F + this.random.nextFloat() * 16.0F;
+         float z = 8.0F + this.random.nextFloat() * 48.0F;
+         float xd = (float)this.random.nextGaussian();
+         float yd = (float)this.random.nextGaussian();
+         float zd = (float)this.random.nextGaussian();
+         float length = (float)Math.sqrt((double)(xd * xd + yd * yd + zd * zd));
+         xd /= length;
+         yd /= length;
+         zd /= length;
+         AABB bounds = new AABB(x - 0.3F, y - 0.3F, z - 0.3F, x + 0.3F, y + 0.3F, z + 0.3F);
+         double[] expected = this.bruteForce((double)x, (double)y, (double)z, (double)xd, (double)yd, (double)zd, bounds);
+         boolean clipped = this.level.clip(x, y, z, xd, yd, zd, bounds, REACH, hit);
+         String ray = x + "," + y + "," + z + " -> " + xd + "," + yd + "," + zd;
+         assertEquals(expected != null, clipped, ray);
+         if (clipped) {
+            ++hits;
+            assertEquals((int)expected[1], hit.x, ray);
+            assertEquals((int)expected[2], hit.y, ray);
+            assertEquals((int)expected[3], hit.z, ray);
+            assertEquals((int)expected[4], hit.f, ray);
+         }
+      }
+
+      assertTrue(hits > 500);
+   }
+
+   @Test
+   public void axisAlignedRaysReportTheFaceTheyEnter() {
+      this.level.edit((batch) -> {
+         batch.fill(20, 40, 20, 30, 50, 30, 0);
+         batch.set(25, 45, 25, 1);
+      });
+      HitResult hit = new HitResult(0, 0, 0, 0, 0);
+      float[][] rays = new float[][]{{25.5F, 43.5F, 25.5F, 0.0F, 1.0F, 0.0F}, {25.5F, 47.5F, 25.5F, 0.0F, -1.0F, 0.0F}, {25.5F, 45.5F, 23.5F, 0.0F, 0.0F, 1.0F}, {25.5F, 45.5F, 27.5F, 0.0F, 0.0F, -1.0F}, {23.5F, 45.5F, 25.5F, 1.0F, 0.0F, 0.0F}, {27.5F, 45.5F, 25.5F, -1.0F, 0.0F, 0.0F}};
+
+      for(int face = 0; face < 6; ++face) {
+         float[] r = rays[face];
+         AABB bounds = new AABB(r[0] - 0.3F, r[1] - 0.3F, r[2] - 0.3F, r[0] + 0.3F, r[1] + 0.3F, r[2] + 0.3F);
+         assertTrue(this.level.clip(r[0], r[1], r[2], r[3], r[4], r[5], bounds, REACH, hit));
+         assertEquals(25, hit.x);
+         assertEquals(45, hit.y);
+         assertEquals(25, hit.z);
+         assertEquals(face, hit.f);
+      }
+
+   }
+
+   @Test
+   public void zeroDirectionHitsNothing() {
+      HitResult hit = new HitResult(0, 0, 0, 0, 0);
+      AABB bounds = new AABB(31.7F, 43.7F, 31.7F, 32.3F, 44.3F, 32.3F);
+      assertFalse(this.level.clip(32.0F, 44.0F, 32.0F, 0.0F, 0.0F, 0.0F, bounds, REACH, hit));
+   }
+}
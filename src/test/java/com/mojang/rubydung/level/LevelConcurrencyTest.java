@@ -0,0 +1,230 @@
+package com.mojang.rubydung.level;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class LevelConcurrencyTest {
+   private static final int SECTIONS = 32;
+   @TempDir
+   File tempDir;
+   private Level level;
+
+   @BeforeEach
+   public void setUp() {
+      this.level = new Level(SECTIONS * 16, SECTIONS * 16, 16, 0, new File(this.tempDir, "level.dat"));
+      this.level.edit((batch) -> {
+         batch.fill(0, 0, 0, this.level.width, this.level.depth, this.level.height, 0);
+      });
+   }
+
+   @Test
+   public void occupancyFollowsEdits() {
+      this.level.edit((batch) -> {
+         batch.fill(16, 0, 32, 32, 16, 48, 1);
+         batch.set(70, 3, 5, 1);
+      });
+
+      for(int x = 0; x < 80; ++x) {
+         for(int y = 0; y < 16; ++y) {
+            for(int z = 0; z < 64; ++z) {
+               boolean solid = x >= 16 && x < 32 && z >= 32 && z < 48 || x == 70 && y == 3 && z == 5;
+               assertEquals(solid, this.level.isSolidTile(x, y, z), x + "," + y + "," + z);
+            }
+         }
+      }
+
+      assertEquals(3, this.level.getFirstSolidBelow(70, 16, 5));
+      assertEquals(65535L << 16, this.level.getSolidWord(0, 7, 40));
+   }
+
+   @Test
+   public void readersNeverSeeHalfAppliedSections() throws InterruptedException {
+      ArrayList<Integer> order = new ArrayList<>();
+
+      for(int i = 0; i < SECTIONS * SECTIONS; ++i) {
+         order.add(i);
+      }
+
+      Collections.shuffle(order, new Random(13L));
+      AtomicReference<String> failure = new AtomicReference<>();
+      Thread[] readers = new Thread[3];
+      AtomicBoolean done = new AtomicBoolean();
+
+      for(int r = 0; r < readers.length; ++r) {
+         long seed = (long)r;
+         readers[r] = new Thread(() -> {
+            Random random = new Random(seed);
+
+            while(!done.get() && failure.get() == null) {
+               int xs = random.nextInt(SECTIONS);
+               int zs = random.nextInt(SECTIONS);
+               int shift = (xs & 3) << 4;
+               long first = this.level.getSolidWord(xs >> 2, 0, zs << 4) >>> shift & 65535L;
+               long last = this.level.getSolidWord(xs >> 2, 15, (zs << 4) + 15) >>> shift & 65535L;
+               if (first != 0L && first != 65535L || last != 0L && last != 65535L || first != 0L && last == 0L) {
+                  failure.compareAndSet(null, "section " + xs + "," + zs + " read " + Long.toHexString(first) + "/" + Long.toHexString(last));
+               }
+
+               boolean near = this.level.isSolidTile(xs << 4, 0, zs << 4);
+               boolean far = this.level.isSolidTile((xs << 4) + 15, 15, (zs << 4) + 15);
+               if (near && !far) {
+                  failure.compareAndSet(null, "section " + xs + "," + zs + " solid at its first tile only");
+               }
+            }
+
+         });
+         readers[r].start();
+      }
+
+      for(int i = 0; i < order.size(); ++i) {
+         int xs = (Integer)order.get(i) % SECTIONS;
+         int zs = (Integer)order.get(i) / SECTIONS;
+         this.level.edit((batch) -> {
+            batch.fill(xs << 4, 0, zs << 4, xs + 1 << 4, 16, zs + 1 << 4, 1);
+         });
+      }
+
+      done.set(true);
+
+      for(int r = 0; r < readers.length; ++r) {
+         readers[r].join();
+      }
+
+      assertNull(failure.get());
+
+      for(int x = 0; x < this.level.width; x += 7) {
+         for(int z = 0; z < this.level.height; z += 5) {
+            assertEquals(15, this.level.getFirstSolidBelow(x, 16, z));
+         }
+      }
+
+   }
+
+   private static String mixed(byte[] values) {
+      for(int i = 1; i < values.length; ++i) {
+         if (values[i] != values[0]) {
+            return "tile 0 is " + values[0] + " but tile " + i + " is " + values[i];
+         }
+      }
+
+      return null;
+   }
+
+   @Test
+   public void concurrentReadersNeverSeeATornLayer() throws InterruptedException {
+      Level level = new Level(32, 32, 32, 0, new File(this.tempDir, "concurrent.dat"));
+      level.setConcurrent(true);
+      level.edit((batch) -> {
+         batch.fill(0, 0, 0, 32, 32, 32, 0);
+      });
+      AtomicReference<String> failure = new AtomicReference<>();
+      AtomicBoolean done = new AtomicBoolean();
+      Thread[] readers = new Thread[3];
+      Thread[] writers = new Thread[3];
+
+      for(int r = 0; r < readers.length; ++r) {
+         long seed = (long)r;
+         readers[r] = new Thread(() -> {
+            Random random = new Random(seed);
+            byte[] values = new byte[Section.VOLUME];
+
+            while(!done.get() && failure.get() == null) {
+               int xs = random.nextInt(2);
+               int zs = random.nextInt(2);
+               String torn = null;
+               if (level.readSection(xs, 1, zs, values)) {
+                  torn = mixed(values);
+               }
+
+               SectionSnapshot snapshot = level.snapshotSection(xs, 1, zs);
+               if (torn == null && snapshot != null) {
+                  snapshot.getAll(values);
+                  torn = mixed(values);
+               }
+
+               for(int f = 2; f < 6 && torn == null && snapshot != null; ++f) {
+                  if (snapshot.getNeighbourVersion(f) != -1) {
+                     byte centre = values[0];
+                     snapshot.getBorder(f, values);
+                     torn = mixed(values);
+                     if (torn == null && values[0] != centre) {
+                        torn = "face " + f + " border is " + values[0] + " but the section is " + centre;
+                     }
+                  }
+               }
+
+               if (torn != null) {
+                  failure.compareAndSet(null, "section " + xs + ",1," + zs + ": " + torn);
+               }
+
+               level.isTile(random.nextInt(32), random.nextInt(16), random.nextInt(32));
+               level.isTile((xs << 4) + random.nextInt(16), 16 + random.nextInt(16), (zs << 4) + random.nextInt(16));
+            }
+
+         });
+      }
+
+      for(int w = 0; w < writers.length; ++w) {
+         long seed = (long)(100 + w);
+         writers[w] = new Thread(() -> {
+            Random random = new Random(seed);
+
+            for(int n = 0; n < 1000 && failure.get() == null; ++n) {
+               if (random.nextBoolean()) {
+                  level.setTile(random.nextInt(32), random.nextInt(16), random.nextInt(32), random.nextInt(2));
+               } else {
+                  int type = random.nextInt(4);
+                  level.edit((batch) -> {
+                     batch.fill(0, 16, 0, 32, 24, 32, type);
+                     Thread.yield();
+                     batch.fill(0, 24, 0, 32, 32, 32, type);
+                  });
+               }
+            }
+
+         });
+      }
+
+      for(int r = 0; r < readers.length; ++r) {
+         readers[r].start();
+      }
+
+      for(int w = 0; w < writers.length; ++w) {
+         writers[w].start();
+      }
+
+      for(int w = 0; w < writers.length; ++w) {
+         writers[w].join();
+      }
+
+      done.set(true);
+
+      for(int r = 0; r < readers.length; ++r) {
+         readers[r].join();
+      }
+
+      assertNull(failure.get());
+      byte[] values = new byte[Section.VOLUME];
+
+      for(int xs = 0; xs < 2; ++xs) {
+         for(int zs = 0; zs < 2; ++zs) {
+            assertTrue(level.readSection(xs, 1, zs, values));
+            assertNull(mixed(values));
+            assertEquals(values[0] == 1, level.isTile(xs << 4, 20, zs << 4));
+            assertEquals(values[0] == 1, level.isSolidTile((xs << 4) + 15, 31, (zs << 4) + 15));
+         }
+      }
+
+   }
+}
@@ -0,0 +1,107 @@
+package com.mojang.rubydung.level;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class LevelEditTest {
+   @TempDir
+   File tempDir;
+   private Level level;
+   private ArrayList<int[]> regions = new ArrayList<>();
+
+   @BeforeEach
+   public void setUp() {
+      this.level = new Level(64, 64, 64, 0, new File(this.tempDir, "level.dat"));
+      this.level.save();
+      this.level.addListener(new LevelListener() {
+         public void tileChanged(int x, int y, int z) {
+         }
+
+         public void lightColumnChanged(int x, int z, int y0, int y1) {
+         }
+
+         public void allChanged() {
+         }
+
+         public void regionChanged(int x0, int y0, int z0, int x1, int y1, int z1) {
+            LevelEditTest.this.regions.add(new int[]{x0, y0, z0, x1, y1, z1});
+         }
+
+         public void columnLoaded(int xs, int zs) {
+         }
+
+         public void columnUnloaded(int xs, int zs) {
+         }
+      });
+   }
+
+   private boolean notified(int x, int y, int z) {
+      for(int i = 0; i < this.regions.size(); ++i) {
+         int[] r = (int[])this.regions.get(i);
+         if (x >= r[0] && y >= r[1] && z >= r[2] && x <= r[3] && y <= r[4] && z <= r[5]) {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   @Test
+   public void editIsIndexedNotifiedAndSaved() {
+      this.level.edit((batch) -> {
+         batch.fill(8, 50, 8, 12, 54, 12, 1);
+         batch.set(40, 42, 40, 0);
+      });
+      assertTrue(this.level.isSolidTile(10, 52, 10));
+      assertFalse(this.level.isSolidTile(40, 42, 40));
+      assertEquals(53, this.level.getLightDepth(10, 10));
+      assertTrue(this.notified(10, 52, 10));
+      assertTrue(this.notified(40, 42, 40));
+      this.level.save();
+      Level reloaded = new Level(64, 64, 64, 0, new File(this.tempDir, "level.dat"));
+      assertTrue(reloaded.isTile(10, 52, 10));
+      assertFalse(reloaded.isTile(40, 42, 40));
+   }
+
+   @Test
+   public void throwingEditKeepsWhatItAlreadyChangedConsistent() {
+      IllegalStateException thrown = new IllegalStateException("edit failed");
+      assertThrows(IllegalStateException.class, () -> {
+         this.level.edit((batch) -> {
+            batch.fill(8, 50, 8, 12, 54, 12, 1);
+            throw thrown;
+         });
+      });
+      assertTrue(this.level.isTile(10, 52, 10));
+      assertTrue(this.level.isSolidTile(10, 52, 10));
+      assertEquals(53, this.level.getLightDepth(10, 10));
+      assertTrue(this.notified(10, 52, 10));
+      this.level.save();
+      Level reloaded = new Level(64, 64, 64, 0, new File(this.tempDir, "level.dat"));
+      assertTrue(reloaded.isTile(10, 52, 10));
+   }
+
+   @Test
+   public void levelIsUsableAfterAThrowingEdit() {
+      assertThrows(IllegalStateException.class, () -> {
+         this.level.edit((batch) -> {
+            throw new IllegalStateException("edit failed");
+         });
+      });
+      this.level.setTile(20, 50, 20, 1);
+      this.level.edit((batch) -> {
+         batch.set(21, 50, 20, 1);
+      });
+      assertTrue(this.level.isSolidTile(20, 50, 20));
+      assertTrue(this.level.isSolidTile(21, 50, 20));
+      assertTrue(this.notified(21, 50, 20));
+   }
+}
@@ -0,0 +1,102 @@
+package com.mojang.rubydung.level;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class LightEngineTest {
+   @TempDir
+   File tempDir;
+   private Level level;
+   private Random random = new Random(11L);
+
+   @BeforeEach
+   public void setUp() {
+      this.level = new Level(48, 48, 32, 0, new File(this.tempDir, "level.dat"));
+      this.level.setPropagatedLight(true);
+   }
+
+   private void assertMatchesFullRelight(String step) {
+      float[] incremental = new float[this.level.width * this.level.height * this.level.depth];
+      int i = 0;
+
+      for(int y = 0; y < this.level.depth; ++y) {
+         for(int z = 0; z < this.level.height; ++z) {
+            for(int x = 0; x < this.level.width; ++x) {
+               incremental[i++] = this.level.getBrightness(x, y, z);
+            }
+         }
+      }
+
+      this.level.setPropagatedLight(false);
+      this.level.setPropagatedLight(true);
+      i = 0;
+
+      for(int y = 0; y < this.level.depth; ++y) {
+         for(int z = 0; z < this.level.height; ++z) {
+            for(int x = 0; x < this.level.width; ++x) {
+               assertEquals(this.level.getBrightness(x, y, z), incremental[i++], 0.0F, step + " at " + x + "," + y + "," + z);
+            }
+         }
+      }
+
+   }
+
+   private int nearBorder(int size) {
+      int border = this.random.nextInt(size / 16 + 1) * 16;
+      return Math.max(0, Math.min(size - 1, border + this.random.nextInt(6) - 3));
+   }
+
+   @Test
+   public void randomEditsMatchAFullRelight() {
+      int surface = this.level.depth * 2 / 3;
+
+      for(int n = 0; n < 100; ++n) {
+         int x = this.random.nextBoolean() ? this.nearBorder(this.level.width) : this.random.nextInt(this.level.width);
+         int y = this.random.nextBoolean() ? this.nearBorder(this.level.depth) : surface - 3 + this.random.nextInt(8);
+         int z = this.random.nextBoolean() ? this.nearBorder(this.level.height) : this.random.nextInt(this.level.height);
+         int type = this.random.nextInt(2);
+         if (this.random.nextInt(3) == 0) {
+            int x1 = Math.min(this.level.width, x + 1 + this.random.nextInt(8));
+            int y1 = Math.min(this.level.depth, y + 1 + this.random.nextInt(4));
+            int z1 = Math.min(this.level.height, z + 1 + this.random.nextInt(8));
+            this.level.edit((batch) -> {
+               batch.fill(x, y, z, x1, y1, z1, type);
+            });
+         } else {
+            this.level.setTile(x, y, z, type);
+         }
+
+         if (n % 5 == 4) {
+            this.assertMatchesFullRelight("edit " + n);
+         }
+      }
+
+   }
+
+   @Test
+   public void roofAcrossColumnAndSectionBordersDarkensBothSides() {
+      int surface = this.level.depth * 2 / 3;
+      this.level.edit((batch) -> {
+         batch.fill(12, 10, 12, 20, surface + 1, 20, 0);
+      });
+      this.assertMatchesFullRelight("pit");
+      float open = this.level.getBrightness(16, 12, 16);
+      this.level.edit((batch) -> {
+         batch.fill(10, surface + 3, 10, 22, surface + 4, 22, 1);
+      });
+      this.assertMatchesFullRelight("roof");
+      assertTrue(this.level.getBrightness(16, 12, 16) < open);
+      this.level.setTile(16, surface + 3, 16, 0);
+      this.level.setTile(16, surface + 3, 16, 1);
+      this.assertMatchesFullRelight("hole opened and closed");
+      this.level.setTile(15, 15, 15, 1);
+      this.level.setTile(16, 16, 16, 1);
+      this.assertMatchesFullRelight("section corner");
+   }
+}
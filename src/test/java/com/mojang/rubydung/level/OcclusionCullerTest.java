@@ -0,0 +1,118 @@
+package com.mojang.rubydung.level;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.mojang.rubydung.Player;
+import java.io.File;
+import java.util.ArrayList;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class OcclusionCullerTest {
+   @TempDir
+   File tempDir;
+   private Level level;
+   private Chunk[] chunks;
+   private OcclusionCuller culler;
+   private ArrayList<Chunk> visible = new ArrayList<>();
+
+   @BeforeEach
+   public void setUp() {
+      this.level = new Level(64, 64, 64, 0, new File(this.tempDir, "level.dat"));
+      this.carve(24, 24, 0, 25, 25, 64);
+      this.carve(36, 20, 52, 40, 24, 56);
+      this.carve(20, 20, 20, 26, 26, 26);
+      this.chunks = new Chunk[64];
+      VisibilityGraph graph = new VisibilityGraph();
+
+      for(int x = 0; x < 4; ++x) {
+         for(int y = 0; y < 4; ++y) {
+            for(int z = 0; z < 4; ++z) {
+               Chunk chunk = new Chunk(this.level, x * 16, y * 16, z * 16, x * 16 + 16, y * 16 + 16, z * 16 + 16);
+               chunk.visibility = graph.compute(this.level, chunk.x0, chunk.y0, chunk.z0, chunk.x1, chunk.y1, chunk.z1);
+               this.chunks[(x + y * 4) * 4 + z] = chunk;
+            }
+         }
+      }
+
+      this.culler = new OcclusionCuller(this.chunks, 4, 4, 4);
+   }
+
+   private void carve(int x0, int y0, int z0, int x1, int y1, int z1) {
+      for(int x = x0; x < x1; ++x) {
+         for(int y = y0; y < y1; ++y) {
+            for(int z = z0; z < z1; ++z) {
+               this.level.setTile(x, y, z, 0);
+            }
+         }
+      }
+
+   }
+
+   private Chunk chunk(int x, int y, int z) {
+      return this.chunks[(x + y * 4) * 4 + z];
+   }
+
+   private Frustum cull(float x, float y, float z, float xRot, float yRot) {
+      Player player = new Player(this.level);
+      player.x = player.xo = x;
+      player.y = player.yo = y;
+      player.z = player.zo = z;
+      player.xRot = xRot;
+      player.yRot = yRot;
+      Frustum frustum = Frustum.getFrustum(player, 1.0F, 70.0F, 1.0F, 0.05F, 1000.0F);
+      this.visible.clear();
+      this.culler.cull(frustum, (int)Math.floor((double)x) >> 4, (int)Math.floor((double)y) >> 4, (int)Math.floor((double)z) >> 4, this.visible);
+      return frustum;
+   }
+
+   @Test
+   public void tunnelIsVisibleAlongItsLength() {
+      this.cull(24.5F, 24.5F, 2.0F, 0.0F, 180.0F);
+
+      for(int z = 0; z < 4; ++z) {
+         assertTrue(this.visible.contains(this.chunk(1, 1, z)), "tunnel chunk " + z);
+      }
+
+   }
+
+   @Test
+   public void caveOutOfSightOfTheTunnelIsCulled() {
+      Frustum frustum = this.cull(24.5F, 24.5F, 2.0F, 0.0F, 180.0F);
+      Chunk cave = this.chunk(2, 1, 3);
+      assertFalse(cave.isEmpty());
+      assertTrue(frustum.cubeInFrustum(cave.aabb));
+      assertFalse(this.visible.contains(cave));
+   }
+
+   @Test
+   public void buriedCameraOnlySeesItsNeighbours() {
+      this.cull(23.0F, 23.0F, 23.0F, 0.0F, 0.0F);
+      assertTrue(this.visible.contains(this.chunk(1, 1, 1)));
+
+      for(int i = 0; i < this.visible.size(); ++i) {
+         Chunk chunk = (Chunk)this.visible.get(i);
+         int distance = Math.abs((chunk.x0 >> 4) - 1) + Math.abs((chunk.y0 >> 4) - 1) + Math.abs((chunk.z0 >> 4) - 1);
+         assertTrue(distance <= 1, "chunk at " + chunk.x0 + "," + chunk.y0 + "," + chunk.z0);
+      }
+
+   }
+
+   @Test
+   public void cameraAboveTheLevelSeesTheSurface() {
+      Frustum frustum = this.cull(32.0F, 80.0F, 32.0F, 90.0F, 0.0F);
+
+      for(int x = 0; x < 4; ++x) {
+         for(int z = 0; z < 4; ++z) {
+            Chunk surface = this.chunk(x, 2, z);
+            if (frustum.cubeInFrustum(surface.aabb)) {
+               assertTrue(this.visible.contains(surface), "surface chunk " + x + "," + z);
+            }
+         }
+      }
+
+      assertFalse(this.visible.contains(this.chunk(2, 1, 3)));
+   }
+}
@@ -0,0 +1,161 @@
+package com.mojang.rubydung.level;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class VisibilityGraphTest {
+   private final VisibilityGraph graph = new VisibilityGraph();
+
+   @Test
+   public void emptyChunkConnectsEveryFace() {
+      Grid grid = new Grid(16, 16, 16);
+      assertEquals(VisibilityGraph.ALL, this.graph.compute(grid, 0, 0, 0, 16, 16, 16));
+   }
+
+   @Test
+   public void solidChunkConnectsNothing() {
+      Grid grid = new Grid(16, 16, 16);
+      grid.fill(0, 0, 0, 16, 16, 16, true);
+      assertEquals(VisibilityGraph.NONE, this.graph.compute(grid, 0, 0, 0, 16, 16, 16));
+   }
+
+   @Test
+   public void wallSeparatesItsTwoSides() {
+      Grid grid = new Grid(16, 16, 16);
+      grid.fill(8, 0, 0, 9, 16, 16, true);
+      long visibility = this.graph.compute(grid, 0, 0, 0, 16, 16, 16);
+      assertFalse(VisibilityGraph.isConnected(visibility, 4, 5));
+      assertFalse(VisibilityGraph.isConnected(visibility, 5, 4));
+      assertTrue(VisibilityGraph.isConnected(visibility, 0, 1));
+      assertTrue(VisibilityGraph.isConnected(visibility, 4, 0));
+      assertTrue(VisibilityGraph.isConnected(visibility, 5, 3));
+   }
+
+   @Test
+   public void tunnelConnectsOnlyItsEnds() {
+      Grid grid = new Grid(16, 16, 16);
+      grid.fill(0, 0, 0, 16, 16, 16, true);
+      grid.fill(7, 7, 0, 8, 8, 16, false);
+      long visibility = this.graph.compute(grid, 0, 0, 0, 16, 16, 16);
+
+      for(int from = 0; from < 6; ++from) {
+         for(int to = 0; to < 6; ++to) {
+            boolean expected = from >= 2 && from <= 3 && to >= 2 && to <= 3;
+            assertEquals(expected, VisibilityGraph.isConnected(visibility, from, to), from + " -> " + to);
+         }
+      }
+
+   }
+
+   @Test
+   public void partialChunkUsesItsOwnBounds() {
+      Grid grid = new Grid(16, 20, 16);
+      grid.fill(0, 16, 0, 16, 20, 16, false);
+      grid.fill(0, 17, 0, 16, 18, 16, true);
+      long visibility = this.graph.compute(grid, 0, 16, 0, 16, 20, 16);
+      assertFalse(VisibilityGraph.isConnected(visibility, 0, 1));
+      assertTrue(VisibilityGraph.isConnected(visibility, 1, 2));
+      assertTrue(VisibilityGraph.isConnected(visibility, 0, 5));
+   }
+
+   @Test
+   public void matchesFloodFillBetweenFacePairs() {
+      Random random = new Random(24L);
+
+      for(int n = 0; n < 50; ++n) {
+         Grid grid = new Grid(16, 16, 16);
+
+         for(int i = 0; i < 4096; ++i) {
+            grid.solid[i] = random.nextFloat() < 0.45F;
+         }
+
+         long visibility = this.graph.compute(grid, 0, 0, 0, 16, 16, 16);
+
+         for(int from = 0; from < 6; ++from) {
+            for(int to = 0; to < 6; ++to) {
+               assertEquals(grid.faceReaches(from, to), VisibilityGraph.isConnected(visibility, from, to), from + " -> " + to);
+            }
+         }
+      }
+
+   }
+
+   private static class Grid implements LevelSource {
+      private final int width;
+      private final int depth;
+      private final int height;
+      private final boolean[] solid;
+
+      public Grid(int w, int d, int h) {
+         this.width = w;
+         this.depth = d;
+         this.height = h;
+         this.solid = new boolean[w * d * h];
+      }
+
+      public void fill(int x0, int y0, int z0, int x1, int y1, int z1, boolean value) {
+         for(int y = y0; y < y1; ++y) {
+            for(int z = z0; z < z1; ++z) {
+               for(int x = x0; x < x1; ++x) {
+                  this.solid[(y * this.height + z) * this.width + x] = value;
+               }
+            }
+         }
+
+      }
+
+      public boolean isSolidTile(int x, int y, int z) {
+         return x >= 0 && y >= 0 && z >= 0 && x < this.width && y < this.depth && z < this.height && this.solid[(y * this.height + z) * this.width + x];
+      }
+
+      public float getBrightness(int x, int y, int z) {
+         return 1.0F;
+      }
+
+      private boolean onFace(int x, int y, int z, int face) {
+         return face == 0 ? y == 0 : (face == 1 ? y == this.depth - 1 : (face == 2 ? z == 0 : (face == 3 ? z == this.height - 1 : (face == 4 ? x == 0 : x == this.width - 1))));
+      }
+
+      public boolean faceReaches(int from, int to) {
+         boolean[] seen = new boolean[this.solid.length];
+         int[] queue = new int[this.solid.length];
+         int tail = 0;
+
+         for(int i = 0; i < this.solid.length; ++i) {
+            if (!this.solid[i] && this.onFace(i % this.width, i / (this.width * this.height), i / this.width % this.height, from)) {
+               seen[i] = true;
+               queue[tail++] = i;
+            }
+         }
+
+         for(int head = 0; head < tail; ++head) {
+            int i = queue[head];
+            int x = i % this.width;
+            int y = i / (this.width * this.height);
+            int z = i / this.width % this.height;
+            if (this.onFace(x, y, z, to)) {
+               return true;
+            }
+
+            int[][] steps = new int[][]{{0, -1, 0}, {0, 1, 0}, {0, 0, -1}, {0, 0, 1}, {-1, 0, 0}, {1, 0, 0}};
+
+            for(int f = 0; f < 6; ++f) {
+               int nx = x + steps[f][0];
+               int ny = y + steps[f][1];
+               int nz = z + steps[f][2];
+               int n = (ny * this.height + nz) * this.width + nx;
+               if (nx >= 0 && ny >= 0 && nz >= 0 && nx < this.width && ny < this.depth && nz < this.height && !this.solid[n] && !seen[n]) {
+                  seen[n] = true;
+                  queue[tail++] = n;
+               }
+            }
+         }
+
+         return false;
+      }
+   }
+}